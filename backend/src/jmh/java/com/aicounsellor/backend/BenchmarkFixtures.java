@@ -0,0 +1,158 @@
+package com.aicounsellor.backend;
+
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+
+import com.aicounsellor.backend.profile.UserProfile;
+import com.aicounsellor.backend.tasks.UserTask;
+import com.aicounsellor.backend.universities.University;
+import com.aicounsellor.backend.universities.UserUniversity;
+import com.aicounsellor.backend.universities.dto.UniversityDiscoverResponse;
+
+/** Deterministic, realistically sized inputs shared by the benchmarks. */
+public final class BenchmarkFixtures {
+
+    private static final String[] COUNTRIES = {"USA", "UK", "Canada", "Germany", "Australia", "Ireland", "Netherlands", "France"};
+    private static final String[] DIFFICULTY = {"low", "medium", "high"};
+    private static final String[] BUCKETS = {"DREAM", "TARGET", "SAFE"};
+    private static final String[] LEVELS = {"LOW", "MEDIUM", "HIGH"};
+
+    // syllables for made-up place names, so names vary the way real ones do
+    private static final String[] SYLLABLES = {
+            "ab", "al", "an", "ar", "ash", "ber", "bra", "bur", "cas", "ches", "cor", "dal", "del", "den", "dor",
+            "ed", "el", "fal", "ford", "gen", "gow", "ham", "har", "ing", "kel", "kin", "lan", "ley", "lin", "lo",
+            "mar", "mon", "mor", "mun", "nes", "nor", "ox", "per", "por", "quin", "ran", "rich", "rin", "ros", "sal",
+            "sel", "shir", "stan", "ston", "tam", "ter", "ton", "tro", "ul", "van", "ven", "ver", "wes", "wick", "york"};
+    private static final String[] NAME_PREFIX = {"Northern", "Royal", "National", "Technical", "State", "Central"};
+    private static final String[] NAME_SUFFIX = {"University", "Institute of Technology", "College", "School of Business", "Polytechnic"};
+
+    private BenchmarkFixtures() {}
+
+    public static UserProfile profile() {
+        UserProfile p = new UserProfile();
+        p.setUserId(UUID.nameUUIDFromBytes("bench-user".getBytes()));
+        p.setEducationLevel("Bachelor's");
+        p.setMajor("Computer Science");
+        p.setGradYear(2025);
+        p.setGpa(3.45);
+        p.setIntendedDegree("Master's");
+        p.setFieldOfStudy("Data Science");
+        p.setIntakeYear(2027);
+        p.setPreferredCountries(new String[]{"USA", "Canada", "Germany"});
+        p.setBudgetPerYear(40000);
+        p.setFundingPlan("Self + loan");
+        p.setIeltsStatus("Not started");
+        p.setGreStatus("Planned");
+        p.setSopStatus("Draft");
+        p.setOnboardingCompleted(true);
+        p.setUpdatedAt(OffsetDateTime.now());
+        return p;
+    }
+
+    public static List<University> universities(int n, long seed) {
+        Random r = new Random(seed);
+        List<University> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            University u = new University();
+            u.setId(new UUID(seed, i));
+            u.setName("University of Example " + i + " at " + COUNTRIES[i % COUNTRIES.length]);
+            u.setCountry(COUNTRIES[r.nextInt(COUNTRIES.length)]);
+            u.setDegree(r.nextBoolean() ? "Master's" : "Bachelor's");
+            u.setField(r.nextBoolean() ? "Data Science" : "Computer Science");
+            u.setYearlyCostUsd(8000 + r.nextInt(60000));
+            u.setMinGpa(r.nextInt(10) == 0 ? null : 2.5 + r.nextInt(15) / 10.0);
+            u.setDifficulty(DIFFICULTY[r.nextInt(DIFFICULTY.length)]);
+            u.setCreatedAt(OffsetDateTime.now());
+            out.add(u);
+        }
+        return out;
+    }
+
+    /** Catalog rows with varied, realistic-looking names ("University of Kelmarton", "Royal Delford College"). */
+    public static List<University> namedUniversities(int n, long seed) {
+        List<University> out = universities(n, seed);
+        Random r = new Random(seed);
+        for (University u : out) {
+            String place = placeName(r);
+            u.setName(switch (r.nextInt(3)) {
+                case 0 -> "University of " + place;
+                case 1 -> place + " " + NAME_SUFFIX[r.nextInt(NAME_SUFFIX.length)];
+                default -> NAME_PREFIX[r.nextInt(NAME_PREFIX.length)] + " " + place + " " + NAME_SUFFIX[r.nextInt(NAME_SUFFIX.length)];
+            });
+        }
+        return out;
+    }
+
+    private static String placeName(Random r) {
+        StringBuilder b = new StringBuilder();
+        int parts = 2 + r.nextInt(2);
+        for (int i = 0; i < parts; i++) b.append(SYLLABLES[r.nextInt(SYLLABLES.length)]);
+        b.setCharAt(0, Character.toUpperCase(b.charAt(0)));
+        return b.toString();
+    }
+
+    public static List<UserUniversity> shortlist(UUID userId, List<University> from, int n) {
+        List<UserUniversity> out = new ArrayList<>(n);
+        for (int i = 0; i < n && i < from.size(); i++) {
+            UserUniversity uu = new UserUniversity();
+            uu.setId(new UUID(7, i));
+            uu.setUserId(userId);
+            uu.setUniversity(from.get(i));
+            uu.setStatus(i == 0 ? "locked" : "shortlisted");
+            uu.setCreatedAt(OffsetDateTime.now());
+            uu.setLockedAt(i == 0 ? OffsetDateTime.now() : null);
+            out.add(uu);
+        }
+        return out;
+    }
+
+    public static List<UniversityDiscoverResponse> discovered(List<University> from, int n) {
+        List<UniversityDiscoverResponse> out = new ArrayList<>(n);
+        for (int i = 0; i < n && i < from.size(); i++) {
+            University u = from.get(i);
+            out.add(new UniversityDiscoverResponse(
+                    u.getId(), u.getName(), u.getCountry(), u.getYearlyCostUsd(), u.getDifficulty(),
+                    BUCKETS[i % 3], LEVELS[i % 3], LEVELS[(i + 1) % 3],
+                    "Balanced option based on budget/profile with manageable risk."));
+        }
+        return out;
+    }
+
+    public static List<UserTask> tasks(UUID userId, int n) {
+        List<UserTask> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            UserTask t = new UserTask();
+            t.setId(new UUID(11, i));
+            t.setUserId(userId);
+            t.setTitle(i % 2 == 0 ? "Book IELTS/TOEFL exam date and create prep schedule" : "Finalize SOP draft");
+            t.setStatus(i % 3 == 0 ? "done" : "pending");
+            t.setSource(i % 2 == 0 ? "ai" : "manual");
+            t.setCreatedAt(OffsetDateTime.now());
+            t.setCompletedAt(i % 3 == 0 ? OffsetDateTime.now() : null);
+            out.add(t);
+        }
+        return out;
+    }
+
+    /**
+     * In-memory stand-in for a Spring Data repository (or any interface):
+     * methods are answered by name, anything else throws. Keeps the DB out of
+     * benchmarks of service code.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+            return answer.apply(args);
+        });
+    }
+}
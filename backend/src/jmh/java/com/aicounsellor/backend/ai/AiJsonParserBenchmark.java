@@ -0,0 +1,55 @@
+package com.aicounsellor.backend.ai;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aicounsellor.backend.ai.dto.AiModelOutput;
+
+/**
+ * Provider body bytes -> {reply, actions}: the old Map-based path vs the
+ * streaming AiJsonParser. Run with -prof gc to compare allocation per op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AiJsonParserBenchmark {
+
+    @Param({"gemini", "groq"})
+    public String provider;
+
+    private byte[] payload;
+    private LegacyAiJsonParser legacy;
+    private AiJsonParser parser;
+
+    @Setup
+    public void setup() {
+        payload = "gemini".equals(provider) ? ProviderPayloads.gemini() : ProviderPayloads.groq();
+        legacy = new LegacyAiJsonParser();
+        parser = new AiJsonParser();
+    }
+
+    @Benchmark
+    public Map<String, Object> legacyMapParser() {
+        return legacy.parse(payload);
+    }
+
+    @Benchmark
+    public AiModelOutput streamingTypedParser() {
+        return parser.parse(payload);
+    }
+}
@@ -0,0 +1,54 @@
+package com.aicounsellor.backend.ai;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** The Map-based parser AiJsonParser replaced, kept as the benchmark baseline. */
+class LegacyAiJsonParser {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // what WebClient.bodyToMono(Map.class) did before the parser ever ran
+    @SuppressWarnings("unchecked")
+    Map<String, Object> parse(byte[] raw) {
+        try {
+            return extractJson(mapper.readValue(raw, Map.class));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> extractJson(Map<String, Object> raw) {
+        try {
+            String text = null;
+
+            if (raw.containsKey("candidates")) {
+                var candidates = (List<Map<String, Object>>) raw.get("candidates");
+                var c0 = candidates.get(0);
+                var content = (Map<String, Object>) c0.get("content");
+                var parts = (List<Map<String, Object>>) content.get("parts");
+                text = String.valueOf(parts.get(0).get("text"));
+            }
+
+            if (text == null && raw.containsKey("choices")) {
+                var choices = (List<Map<String, Object>>) raw.get("choices");
+                var m0 = (Map<String, Object>) choices.get(0).get("message");
+                text = String.valueOf(m0.get("content"));
+            }
+
+            if (text == null) {
+                throw new RuntimeException("Unknown AI response format");
+            }
+
+            text = text.replace("```json", "").replace("```", "").trim();
+
+            return mapper.readValue(text, Map.class);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse AI JSON output: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.aicounsellor.backend.ai;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aicounsellor.backend.BenchmarkFixtures;
+import com.aicounsellor.backend.profile.UserProfile;
+import com.aicounsellor.backend.universities.University;
+import com.aicounsellor.backend.universities.UserUniversity;
+import com.aicounsellor.backend.universities.dto.UniversityDiscoverResponse;
+
+/**
+ * Prompt context: the former Map.toString() rendering vs PromptContextEncoder,
+ * and the whole per-turn prompt build of AiService (context, user prompt,
+ * cache key). Input token estimates are printed once per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptContextBenchmark {
+
+    private UserProfile profile;
+    private List<UserUniversity> shortlist;
+    private List<UniversityDiscoverResponse> available;
+    private PromptContextEncoder encoder;
+    private AiResponseCache cache;
+
+    @Setup
+    public void setup() {
+        profile = BenchmarkFixtures.profile();
+        List<University> unis = BenchmarkFixtures.universities(40, 42);
+        shortlist = BenchmarkFixtures.shortlist(profile.getUserId(), unis, 6);
+        available = BenchmarkFixtures.discovered(unis, 25);
+        encoder = new PromptContextEncoder(1200);
+        cache = new AiResponseCache();
+
+        String legacy = legacyContext();
+        PromptContextEncoder.EncodedContext compact = encoder.encode(2, "Onboarding complete.", profile, shortlist, available);
+        System.out.printf("%nCONTEXT_TOKENS legacy=%d compact=%d (chars %d -> %d)%n",
+                TokenEstimator.estimate(legacy), compact.estimatedTokens(), legacy.length(), compact.text().length());
+    }
+
+    @Benchmark
+    public String legacyMapToString() {
+        return legacyContext();
+    }
+
+    @Benchmark
+    public PromptContextEncoder.EncodedContext compactEncoder() {
+        return encoder.encode(2, "Onboarding complete.", profile, shortlist, available);
+    }
+
+    // AiService.prepareTurn minus the DB reads
+    @Benchmark
+    public String chatTurnPrompt() {
+        PromptContextEncoder.EncodedContext context = encoder.encode(2, "Onboarding complete.", profile, shortlist, available);
+        String userPrompt = AiService.userPrompt(context.text(), "Which universities should I shortlist?");
+        return cache.key(AiService.SYSTEM_PROMPT, context.text(), "Which universities should I shortlist?") + userPrompt.length();
+    }
+
+    // what AiService.chat used to put in the prompt
+    private String legacyContext() {
+        List<Map<String, Object>> availableUnis = new ArrayList<>();
+        for (UniversityDiscoverResponse u : available) {
+            availableUnis.add(Map.of(
+                    "id", u.getId(),
+                    "name", u.getName(),
+                    "country", u.getCountry(),
+                    "yearlyCostUsd", u.getYearlyCostUsd(),
+                    "bucket", u.getBucket(),
+                    "acceptanceChance", u.getAcceptanceChance(),
+                    "risk", u.getRisk()
+            ));
+        }
+
+        Map<String, Object> profileMap = new LinkedHashMap<>();
+        profileMap.put("educationLevel", profile.getEducationLevel());
+        profileMap.put("major", profile.getMajor());
+        profileMap.put("gradYear", profile.getGradYear());
+        profileMap.put("gpa", profile.getGpa());
+        profileMap.put("intendedDegree", profile.getIntendedDegree());
+        profileMap.put("fieldOfStudy", profile.getFieldOfStudy());
+        profileMap.put("intakeYear", profile.getIntakeYear());
+        profileMap.put("preferredCountries", profile.getPreferredCountries());
+        profileMap.put("budgetPerYear", profile.getBudgetPerYear());
+        profileMap.put("fundingPlan", profile.getFundingPlan());
+        profileMap.put("ieltsStatus", profile.getIeltsStatus());
+        profileMap.put("greStatus", profile.getGreStatus());
+        profileMap.put("sopStatus", profile.getSopStatus());
+        profileMap.put("onboardingCompleted", profile.isOnboardingCompleted());
+
+        Map<String, Object> context = new LinkedHashMap<>();
+        context.put("stage", 2);
+        context.put("gating", "Onboarding complete.");
+        context.put("profile", profileMap);
+        context.put("shortlist", shortlist);
+        context.put("availableUniversitiesTop", availableUnis);
+        return context.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package com.aicounsellor.backend.ai;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Provider response bodies shaped and sized like real Gemini / Groq chat answers. */
+final class ProviderPayloads {
+
+    private ProviderPayloads() {}
+
+    static String modelText() {
+        String reply = "Based on your profile (GPA 3.45, budget $40k, Data Science) here are strong options. "
+                + "University of Example 3 is a good TARGET with MEDIUM acceptance chance and manageable cost. "
+                + "University of Example 7 is a SAFE pick within budget. I shortlisted University of Example 3 "
+                + "for you and created a task to book your IELTS date. Next, compare living costs in Canada vs Germany, "
+                + "then lock one university so we can start application tasks. ".repeat(2);
+        return "```json\n{\"reply\": \"" + reply + "\", \"actions\": ["
+                + "{\"type\": \"shortlist\", \"args\": {\"universityId\": \"u3\"}},"
+                + "{\"type\": \"create_task\", \"args\": {\"title\": \"Book IELTS/TOEFL exam date and create prep schedule\"}}"
+                + "]}\n```";
+    }
+
+    static byte[] gemini() {
+        Map<String, Object> body = Map.of(
+                "candidates", List.of(Map.of(
+                        "content", Map.of("parts", List.of(Map.of("text", modelText())), "role", "model"),
+                        "finishReason", "STOP",
+                        "avgLogprobs", -0.0871,
+                        "safetyRatings", List.of(
+                                Map.of("category", "HARM_CATEGORY_HATE_SPEECH", "probability", "NEGLIGIBLE"),
+                                Map.of("category", "HARM_CATEGORY_DANGEROUS_CONTENT", "probability", "NEGLIGIBLE"),
+                                Map.of("category", "HARM_CATEGORY_HARASSMENT", "probability", "NEGLIGIBLE"),
+                                Map.of("category", "HARM_CATEGORY_SEXUALLY_EXPLICIT", "probability", "NEGLIGIBLE"))
+                )),
+                "usageMetadata", Map.of(
+                        "promptTokenCount", 1846,
+                        "candidatesTokenCount", 231,
+                        "totalTokenCount", 2077,
+                        "promptTokensDetails", List.of(Map.of("modality", "TEXT", "tokenCount", 1846))),
+                "modelVersion", "gemini-2.5-flash-lite",
+                "responseId", "mKc3aLXnJ9fZz7IPk7u_uQs"
+        );
+        return write(body);
+    }
+
+    static byte[] groq() {
+        Map<String, Object> body = Map.of(
+                "id", "chatcmpl-6f2c1c9e-3b1f-4a8e-9a57-0c5f3f1b2d7e",
+                "object", "chat.completion",
+                "created", 1760000000,
+                "model", "llama-3.1-8b-instant",
+                "choices", List.of(Map.of(
+                        "index", 0,
+                        "message", Map.of("role", "assistant", "content", modelText()),
+                        "finish_reason", "stop")),
+                "usage", Map.of(
+                        "queue_time", 0.0217,
+                        "prompt_tokens", 1902,
+                        "prompt_time", 0.094,
+                        "completion_tokens", 244,
+                        "completion_time", 0.203,
+                        "total_tokens", 2146,
+                        "total_time", 0.297),
+                "system_fingerprint", "fp_9ceb5e1f29",
+                "x_groq", Map.of("id", "req_01k7example")
+        );
+        return write(body);
+    }
+
+    private static byte[] write(Object body) {
+        try {
+            return new ObjectMapper().writeValueAsBytes(body);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
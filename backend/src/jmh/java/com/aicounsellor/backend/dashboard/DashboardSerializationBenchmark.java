@@ -0,0 +1,66 @@
+package com.aicounsellor.backend.dashboard;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.aicounsellor.backend.BenchmarkFixtures;
+import com.aicounsellor.backend.profile.UserProfile;
+import com.aicounsellor.backend.universities.University;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Jackson serialization of the GET /dashboard payload, with an ObjectMapper
+ * built the way Spring Boot builds the MVC one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DashboardSerializationBenchmark {
+
+    // typical user vs a heavy one
+    @Param({"small", "large"})
+    public String user;
+
+    private ObjectMapper mapper;
+    private Map<String, Object> payload;
+
+    @Setup
+    public void setup() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        boolean large = "large".equals(user);
+        UserProfile profile = BenchmarkFixtures.profile();
+        List<University> unis = BenchmarkFixtures.universities(50, 7);
+
+        // same shape as DashboardController.dashboard
+        payload = Map.of(
+                "stage", 3,
+                "profile", profile,
+                "shortlist", BenchmarkFixtures.shortlist(profile.getUserId(), unis, large ? 40 : 5),
+                "hasLocked", true,
+                "tasks", BenchmarkFixtures.tasks(profile.getUserId(), large ? 200 : 10)
+        );
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return mapper.writeValueAsBytes(payload);
+    }
+}
@@ -0,0 +1,57 @@
+package com.aicounsellor.backend.security;
+
+import java.lang.reflect.Field;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Token checks run on every authenticated request (JwtAuthFilter). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwt;
+    private String token;
+    private UUID userId;
+
+    @Setup
+    public void setup() throws Exception {
+        jwt = new JwtService();
+        set("jwtSecret", "bench-secret-bench-secret-bench-secret-0123456789");
+        set("expiryMillis", 86_400_000L);
+
+        userId = UUID.nameUUIDFromBytes("bench-user".getBytes());
+        token = jwt.generateToken(userId);
+    }
+
+    @Benchmark
+    public UUID validateAndGetUserId() {
+        return jwt.validateAndGetUserId(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwt.generateToken(userId);
+    }
+
+    // @Value fields, normally injected by Spring
+    private void set(String field, Object value) throws Exception {
+        Field f = JwtService.class.getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(jwt, value);
+    }
+}
@@ -0,0 +1,75 @@
+package com.aicounsellor.backend.universities;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aicounsellor.backend.BenchmarkFixtures;
+
+/**
+ * The app side of a catalog load: parse, validate, normalize and encode
+ * 100k rows as COPY input (written to a null sink). Divide rows by the
+ * score for rows/sec; the database side (COPY + merge) is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogIngestBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"csv", "ndjson"})
+    public String format;
+
+    private byte[] file;
+    private CatalogIngestService service;
+
+    @Setup
+    public void setup() {
+        List<University> rows = BenchmarkFixtures.namedUniversities(ROWS, 42);
+        StringBuilder b = new StringBuilder();
+        if (format.equals("csv")) b.append("name,country,degree,field,yearly_cost_usd,min_gpa,difficulty\n");
+        for (University u : rows) {
+            if (format.equals("csv")) {
+                b.append('"').append(u.getName()).append("\",").append(u.getCountry()).append(',')
+                        .append(u.getDegree()).append(',').append(u.getField()).append(',')
+                        .append(u.getYearlyCostUsd()).append(',').append(u.getMinGpa() == null ? "" : u.getMinGpa())
+                        .append(',').append(u.getDifficulty()).append('\n');
+            } else {
+                b.append("{\"name\":\"").append(u.getName()).append("\",\"country\":\"").append(u.getCountry())
+                        .append("\",\"degree\":\"").append(u.getDegree()).append("\",\"field\":\"").append(u.getField())
+                        .append("\",\"yearly_cost_usd\":").append(u.getYearlyCostUsd())
+                        .append(",\"min_gpa\":").append(u.getMinGpa())
+                        .append(",\"difficulty\":\"").append(u.getDifficulty()).append("\"}\n");
+            }
+        }
+        file = b.toString().getBytes(StandardCharsets.UTF_8);
+        service = new CatalogIngestService(null, null);
+    }
+
+    @Benchmark
+    public long stage() throws IOException {
+        CatalogIngestService.Report report = new CatalogIngestService.Report();
+        service.stage(CatalogIngestService.rowSource(new ByteArrayInputStream(file), format), Writer.nullWriter(), report);
+        if (report.rejected > 0) throw new IllegalStateException(report.errors.toString());
+        return report.staged;
+    }
+}
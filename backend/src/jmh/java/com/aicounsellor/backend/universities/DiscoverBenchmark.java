@@ -0,0 +1,124 @@
+package com.aicounsellor.backend.universities;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aicounsellor.backend.BenchmarkFixtures;
+import com.aicounsellor.backend.profile.UserProfile;
+
+/**
+ * The full recompute behind /universities/discover (catalog filter, scoring,
+ * ranking) over catalogs of 1k / 100k / 1M rows. discover itself now reads
+ * the stored result; this is what a profile or catalog change costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx3g"})
+public class DiscoverBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    private static final int BATCH = 64;
+
+    private UniversityService service;
+    private UniversityService parallelService;
+    private List<UUID> batchUsers;
+    private List<Recommendations.Inputs> batchInputs;
+    private UniversityCatalog.Snapshot snapshot;
+    private Recommendations.Inputs inputs;
+    private UUID userId;
+
+    @Setup
+    public void setup() throws Exception {
+        UserProfile profile = BenchmarkFixtures.profile();
+        userId = profile.getUserId();
+
+        List<University> rows = BenchmarkFixtures.universities(catalogSize, 42);
+        UniversityRepository universities = BenchmarkFixtures.stub(UniversityRepository.class, Map.of(
+                "findCatalogEntries", args -> rows.stream().map(CatalogEntry::of).toList()
+        ));
+        UniversityCatalog catalog = new UniversityCatalog(universities, event -> {});
+        snapshot = catalog.refresh();
+        inputs = Recommendations.Inputs.of(profile);
+
+        service = new UniversityService(universities, catalog, null, null, null, null, null, event -> {});
+        setThreshold(service, Integer.MAX_VALUE);
+        parallelService = new UniversityService(universities, catalog, null, null, null, null, null, event -> {});
+        setThreshold(parallelService, 0);
+
+        // a batch of users with varied budgets and GPAs, as after a catalog reload
+        batchUsers = new ArrayList<>();
+        batchInputs = new ArrayList<>();
+        for (int i = 0; i < BATCH; i++) {
+            batchUsers.add(new UUID(1, i));
+            batchInputs.add(new Recommendations.Inputs(true, inputs.countries(), 20000 + 500 * i, 2.5 + (i % 15) / 10.0, i % 4));
+        }
+    }
+
+    @Benchmark
+    public Recommendations recompute() {
+        return service.score(userId, inputs, snapshot);
+    }
+
+    // forced onto the scoring pool regardless of catalog size, to find the threshold
+    @Benchmark
+    public Recommendations recomputeParallel() {
+        return parallelService.score(userId, inputs, snapshot);
+    }
+
+    // batch recompute of BATCH users on the scoring pool (scales with cores, not with catalog splitting)
+    @Benchmark
+    public List<Recommendations> recomputeBatch() {
+        return service.scoreAll(batchUsers, batchInputs, snapshot);
+    }
+
+    // the per-entry scorer over the same candidates, for comparison with the columnar path
+    @Benchmark
+    public Recommendations recomputePerEntry() {
+        return service.scoreCandidates(userId, inputs, snapshot.fingerprint(), candidates(snapshot, inputs));
+    }
+
+    // budget band, then the countries in the order given
+    private static List<CatalogEntry> candidates(UniversityCatalog.Snapshot snapshot, Recommendations.Inputs in) {
+        Integer maxCost = in.budget() != null ? in.budget() + 15000 : null;
+        List<CatalogEntry> affordable = snapshot.all().stream()
+                .filter(e -> maxCost == null || e.yearlyCostUsd() <= maxCost)
+                .toList();
+        if (in.countries().isEmpty()) return affordable;
+
+        List<CatalogEntry> out = new ArrayList<>();
+        for (String country : in.countries()) {
+            for (CatalogEntry e : affordable) {
+                if (country.equals(e.country())) out.add(e);
+            }
+        }
+        return out;
+    }
+
+    // @Value field, normally injected by Spring
+    private static void setThreshold(UniversityService service, int value) throws Exception {
+        Field f = UniversityService.class.getDeclaredField("parallelThreshold");
+        f.setAccessible(true);
+        f.set(service, value);
+    }
+}
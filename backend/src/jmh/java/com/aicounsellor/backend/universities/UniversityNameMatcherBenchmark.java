@@ -0,0 +1,64 @@
+package com.aicounsellor.backend.universities;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aicounsellor.backend.BenchmarkFixtures;
+
+/**
+ * Scanning a typical chat reply (~1.5 KB, a few university names) for
+ * catalog names, as AiService does after every turn. The time should not
+ * grow with the catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx3g"})
+public class UniversityNameMatcherBenchmark {
+
+    @Param({"10000", "100000"})
+    public int catalogSize;
+
+    private UniversityNameMatcher matcher;
+    private String reply;
+
+    @Setup
+    public void setup() {
+        List<University> rows = BenchmarkFixtures.namedUniversities(catalogSize, 42);
+        UniversityRepository universities = BenchmarkFixtures.stub(UniversityRepository.class, Map.of(
+                "findCatalogEntries", args -> rows.stream().map(CatalogEntry::of).toList()
+        ));
+        UniversityCatalog catalog = new UniversityCatalog(universities, event -> {});
+        matcher = new UniversityNameMatcher(catalog);
+        matcher.rebuild(catalog.refresh());
+
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            b.append("Based on your profile, ").append(rows.get(i * 997 % rows.size()).getName())
+                    .append(" is a strong target: its programme fits your budget and the intake is in September. ")
+                    .append("Admission there usually needs an IELTS score of 7.0 and a solid statement of purpose, ")
+                    .append("so start drafting early and ask two referees now. ");
+        }
+        reply = b.toString();
+    }
+
+    @Benchmark
+    public List<UniversityNameMatcher.Mention> find() {
+        return matcher.find(reply);
+    }
+}
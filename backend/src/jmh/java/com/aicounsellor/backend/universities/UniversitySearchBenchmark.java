@@ -0,0 +1,67 @@
+package com.aicounsellor.backend.universities;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aicounsellor.backend.BenchmarkFixtures;
+
+/**
+ * UniversitySearchIndex lookups: a full name, a typo, a prefix still being
+ * typed, and a bare generic word that matches a large part of the catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx3g"})
+public class UniversitySearchBenchmark {
+
+    @Param({"10000", "100000"})
+    public int catalogSize;
+
+    @Param({"exact", "typo", "prefix", "generic"})
+    public String kind;
+
+    private UniversitySearchIndex index;
+    private String query;
+
+    @Setup
+    public void setup() {
+        List<University> rows = BenchmarkFixtures.namedUniversities(catalogSize, 42);
+        UniversityRepository universities = BenchmarkFixtures.stub(UniversityRepository.class, Map.of(
+                "findCatalogEntries", args -> rows.stream().map(CatalogEntry::of).toList()
+        ));
+        UniversityCatalog catalog = new UniversityCatalog(universities, event -> {});
+        index = new UniversitySearchIndex(catalog);
+        index.sync(catalog.refresh());
+
+        String name = rows.get(rows.size() / 2).getName();
+        query = switch (kind) {
+            case "exact" -> name;
+            // swap two letters in the middle
+            case "typo" -> name.substring(0, name.length() / 2 - 1) + name.charAt(name.length() / 2)
+                    + name.charAt(name.length() / 2 - 1) + name.substring(name.length() / 2 + 1);
+            case "prefix" -> name.substring(0, Math.min(name.length(), 8));
+            default -> "university";
+        };
+    }
+
+    @Benchmark
+    public List<UniversitySearchIndex.Hit> search() {
+        return index.search(query, List.of("USA", "Canada"), 10);
+    }
+}
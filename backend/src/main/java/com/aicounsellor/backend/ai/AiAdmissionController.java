@@ -0,0 +1,92 @@
+package com.aicounsellor.backend.ai;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admission control in front of the LLM providers: one {@link FairAdmissionQueue}
+ * per provider. Limits default to app.ai.admission.* and can be overridden per
+ * provider, e.g. app.ai.admission.groq.maxConcurrent.
+ */
+@Component
+public class AiAdmissionController {
+
+    /** Held for the duration of one provider call; closing it twice is harmless. */
+    public static final class Permit implements AutoCloseable {
+        private final FairAdmissionQueue queue;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Permit(FairAdmissionQueue queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                queue.release();
+            }
+        }
+    }
+
+    private final Environment env;
+
+    @Value("${app.ai.admission.maxConcurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${app.ai.admission.maxQueued:64}")
+    private int maxQueued;
+
+    @Value("${app.ai.admission.maxQueuedPerUser:2}")
+    private int maxQueuedPerUser;
+
+    @Value("${app.ai.admission.maxWaitMs:5000}")
+    private long maxWaitMs;
+
+    @Value("${app.ai.admission.retryAfterSeconds:2}")
+    private long retryAfterSeconds;
+
+    private final Map<String, FairAdmissionQueue> queues = new ConcurrentHashMap<>();
+
+    public AiAdmissionController(Environment env) {
+        this.env = env;
+    }
+
+    /** Blocks until admitted, or throws {@link AiOverloadedException}. Never waits past the deadline. */
+    public Permit acquire(LLMClient client, UUID userId, Deadline deadline) {
+        Duration wait = Duration.ofMillis(maxWaitMs);
+        if (deadline.remaining().compareTo(wait) < 0) {
+            wait = deadline.remaining();
+        }
+
+        FairAdmissionQueue q = queue(client.name());
+        q.acquire(userId, wait);
+        return new Permit(q);
+    }
+
+    public Map<String, Object> snapshot(List<LLMClient> clients) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (LLMClient c : clients) {
+            out.put(c.name(), queue(c.name()).snapshot());
+        }
+        return out;
+    }
+
+    private FairAdmissionQueue queue(String provider) {
+        return queues.computeIfAbsent(provider, p -> new FairAdmissionQueue(
+                p,
+                env.getProperty("app.ai.admission." + p + ".maxConcurrent", Integer.class, maxConcurrent),
+                env.getProperty("app.ai.admission." + p + ".maxQueued", Integer.class, maxQueued),
+                maxQueuedPerUser,
+                retryAfterSeconds
+        ));
+    }
+}
@@ -0,0 +1,350 @@
+package com.aicounsellor.backend.ai;
+
+import java.net.InetAddress;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Async chat: POST /ai/chat?async=true stores a row in ai_chat_jobs and
+ * returns its id. Worker threads on every node claim queued rows with
+ * FOR UPDATE SKIP LOCKED, so nodes share the queue without coordinating,
+ * run the normal {@link AiService#chat} turn and write the result back.
+ * Rows left "running" by a node that died are put back in the queue once
+ * they are older than {@code staleAfterSeconds}; a job that has used up
+ * {@code maxAttempts} claims (one that keeps killing or hanging its worker)
+ * is marked failed instead. A turn that failed after applying its actions
+ * is never run again.
+ */
+@Service
+public class AiChatJobService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AiChatJobService.class);
+
+    private static final String CLAIM_SQL = """
+            update public.ai_chat_jobs
+               set status = 'running', started_at = now(), attempts = attempts + 1, locked_by = ?
+             where id = (
+                   select id from public.ai_chat_jobs
+                    where status = 'queued' and run_after <= now() and attempts < ?
+                    order by run_after, created_at
+                    for update skip locked
+                    limit 1)
+            returning id, user_id, message, idempotency_key, attempts, created_at, started_at
+            """;
+
+    private record Job(UUID id, UUID userId, String message, String idempotencyKey, int attempts,
+                       OffsetDateTime createdAt, OffsetDateTime startedAt) {}
+
+    private final JdbcTemplate jdbc;
+    private final AiService aiService;
+    private final AiMetrics metrics;
+    private final ObjectMapper mapper;
+
+    @Value("${app.ai.jobs.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ai.jobs.workers:4}")
+    private int workers;
+
+    @Value("${app.ai.jobs.pollMs:500}")
+    private long pollMs;
+
+    @Value("${app.ai.jobs.staleAfterSeconds:120}")
+    private long staleAfterSeconds;
+
+    @Value("${app.ai.jobs.maxAttempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.ai.jobs.retentionHours:24}")
+    private long retentionHours;
+
+    private final String nodeId;
+
+    // lets an idle local worker pick up a job submitted here without waiting for its next poll
+    private final Semaphore wakeups = new Semaphore(0);
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+
+    private volatile boolean running = false;
+    private final List<Thread> threads = new ArrayList<>();
+    private ScheduledExecutorService housekeeping;
+
+    public AiChatJobService(JdbcTemplate jdbc, AiService aiService, AiMetrics metrics, ObjectMapper mapper) {
+        this.jdbc = jdbc;
+        this.aiService = aiService;
+        this.metrics = metrics;
+        this.mapper = mapper;
+        this.nodeId = nodeName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        metrics.jobQueueDepth(queueDepth);
+    }
+
+    /**
+     * Queues a chat turn; a retried submit with the same Idempotency-Key returns the first job,
+     * the key reused for a different message is rejected.
+     */
+    public Map<String, Object> submit(UUID userId, String message, String idempotencyKey) {
+        String key = idempotencyKey == null || idempotencyKey.isBlank() ? null : idempotencyKey;
+
+        // on conflict the returned row is the first job, message included
+        Map<String, Object> row = jdbc.queryForMap("""
+                insert into public.ai_chat_jobs (id, user_id, message, idempotency_key, status)
+                values (?, ?, ?, ?, 'queued')
+                on conflict (user_id, idempotency_key) where idempotency_key is not null
+                do update set idempotency_key = excluded.idempotency_key
+                returning id, message
+                """, UUID.randomUUID(), userId, message, key);
+        if (!Objects.equals(row.get("message"), message)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key was already used with a different request");
+        }
+        UUID id = (UUID) row.get("id");
+
+        wakeups.release();
+        return find(userId, id);
+    }
+
+    /** The caller's job, or null if there is no such job for this user. */
+    public Map<String, Object> find(UUID userId, UUID jobId) {
+        List<Map<String, Object>> rows = jdbc.query("""
+                select id, status, result::text as result, error, attempts, created_at, started_at, finished_at
+                  from public.ai_chat_jobs
+                 where id = ? and user_id = ?
+                """, (rs, i) -> view(rs), jobId, userId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public static boolean isFinished(Map<String, Object> job) {
+        Object status = job.get("status");
+        return "done".equals(status) || "failed".equals(status);
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "node", nodeId,
+                "workers", running ? workers : 0,
+                "busyWorkers", busyWorkers.get(),
+                "queueDepth", queueDepth.get()
+        );
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) return;
+        running = true;
+
+        for (int i = 0; i < workers; i++) {
+            Thread t = new Thread(this::workLoop, "ai-chat-worker-" + i);
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+
+        housekeeping = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ai-chat-jobs-housekeeping");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeping.scheduleWithFixedDelay(this::housekeep, 0, 15, TimeUnit.SECONDS);
+    }
+
+    // Let in-flight turns finish; whatever is still running afterwards is
+    // reclaimed by another node once it goes stale.
+    @Override
+    public void stop() {
+        running = false;
+        wakeups.release(workers);
+        for (Thread t : threads) {
+            try {
+                t.join(30_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        threads.clear();
+        if (housekeeping != null) housekeeping.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // after graceful shutdown has drained requests, before the write-behind queue flushes
+    // (lower phases stop later)
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 1536;
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                Job job = claim();
+                if (job == null) {
+                    wakeups.tryAcquire(pollMs, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                run(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // DB hiccup: back off one poll interval rather than spin
+                log.warn("chat job worker error: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private Job claim() {
+        List<Job> claimed = jdbc.query(CLAIM_SQL, (rs, i) -> new Job(
+                rs.getObject("id", UUID.class),
+                rs.getObject("user_id", UUID.class),
+                rs.getString("message"),
+                rs.getString("idempotency_key"),
+                rs.getInt("attempts"),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getObject("started_at", OffsetDateTime.class)
+        ), nodeId, maxAttempts);
+        return claimed.isEmpty() ? null : claimed.get(0);
+    }
+
+    private void run(Job job) {
+        busyWorkers.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            // always keyed: if this node claims the job again, a finished turn is replayed, not rerun
+            String key = job.idempotencyKey() != null ? job.idempotencyKey() : "job:" + job.id();
+            Map<String, Object> result = aiService.chat(job.userId(), job.message(), key);
+            int updated = jdbc.update("""
+                    update public.ai_chat_jobs
+                       set status = 'done', result = ?::jsonb, finished_at = now()
+                     where id = ? and status = 'running' and locked_by = ?
+                    """, mapper.writeValueAsString(result), job.id(), nodeId);
+            if (updated == 1) {
+                metrics.jobFinished("done", Duration.between(job.createdAt(), job.startedAt()), System.nanoTime() - start);
+            }
+
+        } catch (AiOverloadedException e) {
+            // providers are saturated: give the slot back and try again after Retry-After
+            jdbc.update("""
+                    update public.ai_chat_jobs
+                       set status = 'queued', locked_by = null, started_at = null,
+                           attempts = attempts - 1, run_after = now() + make_interval(secs => ?)
+                     where id = ? and locked_by = ?
+                    """, e.getRetryAfterSeconds(), job.id(), nodeId);
+
+        } catch (Exception e) {
+            // only a turn that has not applied its actions (or a rejected key) is worth another run
+            boolean retry = job.attempts() < maxAttempts
+                    && !(e instanceof TurnAppliedException)
+                    && !(e instanceof IdempotencyKeyReusedException);
+            jdbc.update("""
+                    update public.ai_chat_jobs
+                       set status = ?, error = ?, locked_by = null,
+                           finished_at = case when ? then null else now() end
+                     where id = ? and locked_by = ?
+                    """, retry ? "queued" : "failed", e.getMessage(), retry, job.id(), nodeId);
+            if (!retry) {
+                metrics.jobFinished("failed", Duration.between(job.createdAt(), job.startedAt()), System.nanoTime() - start);
+            }
+            log.warn("chat job {} failed on attempt {}: {}", job.id(), job.attempts(), e.getMessage());
+
+        } finally {
+            busyWorkers.decrementAndGet();
+        }
+    }
+
+    private void housekeep() {
+        try {
+            // stale after its last allowed attempt: the job itself is what kills or hangs workers
+            int exhausted = jdbc.update("""
+                    update public.ai_chat_jobs
+                       set status = 'failed', locked_by = null, finished_at = now(),
+                           error = coalesce(error, 'worker lost the job ' || attempts || ' times')
+                     where attempts >= ?
+                       and (status = 'queued'
+                            or (status = 'running' and started_at < now() - make_interval(secs => ?)))
+                    """, maxAttempts, staleAfterSeconds);
+            if (exhausted > 0) {
+                log.warn("{} chat jobs failed after {} attempts", exhausted, maxAttempts);
+            }
+
+            int reclaimed = jdbc.update("""
+                    update public.ai_chat_jobs
+                       set status = 'queued', locked_by = null
+                     where status = 'running' and started_at < now() - make_interval(secs => ?)
+                       and attempts < ?
+                    """, staleAfterSeconds, maxAttempts);
+            if (reclaimed > 0) {
+                log.info("reclaimed {} stale chat jobs", reclaimed);
+            }
+
+            jdbc.update("""
+                    delete from public.ai_chat_jobs
+                     where status in ('done', 'failed') and finished_at < now() - make_interval(hours => ?)
+                    """, (int) retentionHours);
+
+            Long depth = jdbc.queryForObject(
+                    "select count(*) from public.ai_chat_jobs where status = 'queued'", Long.class);
+            queueDepth.set(depth != null ? depth : 0);
+
+        } catch (RuntimeException e) {
+            log.warn("chat job housekeeping failed: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, Object> view(ResultSet rs) throws SQLException {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("jobId", rs.getObject("id", UUID.class));
+        out.put("status", rs.getString("status"));
+        String result = rs.getString("result");
+        try {
+            out.put("result", result == null ? null : mapper.readTree(result));
+        } catch (Exception e) {
+            throw new RuntimeException("Corrupt job result: " + e.getMessage());
+        }
+        out.put("error", rs.getString("error"));
+        out.put("attempts", rs.getInt("attempts"));
+        out.put("createdAt", rs.getObject("created_at", OffsetDateTime.class));
+        out.put("startedAt", rs.getObject("started_at", OffsetDateTime.class));
+        out.put("finishedAt", rs.getObject("finished_at", OffsetDateTime.class));
+        return out;
+    }
+
+    private static String nodeName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
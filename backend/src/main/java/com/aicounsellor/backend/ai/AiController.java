@@ -1,35 +1,118 @@
 package com.aicounsellor.backend.ai;
 
-import java.util.List;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.beans.factory.annotation.Value;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import com.aicounsellor.backend.ai.dto.AiChatRequest;
+import com.aicounsellor.backend.universities.InvalidCursorException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @RestController
 @RequestMapping("/ai")
 public class AiController {
 
     private final AiService service;
-    
+    private final AiChatJobService jobs;
+
+    @Value("${app.ai.jobs.pollMs:500}")
+    private long jobPollMs;
 
-    public AiController(AiService service) {
+    public AiController(AiService service, AiChatJobService jobs) {
         this.service = service;
-       
+        this.jobs = jobs;
     }
 
+    // async=true: 202 + job id right away; poll GET /ai/jobs/{id} or subscribe to /ai/jobs/{id}/events
     @PostMapping("/chat")
-    public Map<String, Object> chat(Authentication auth, @RequestBody AiChatRequest req) {
+    public ResponseEntity<Map<String, Object>> chat(
+            Authentication auth,
+            @RequestBody AiChatRequest req,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestParam(defaultValue = "false") boolean async
+    ) {
+        UUID userId = (UUID) auth.getPrincipal();
+        if (async) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobs.submit(userId, req.getMessage(), idempotencyKey));
+        }
+        return ResponseEntity.ok(service.chat(userId, req.getMessage(), idempotencyKey));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> job(Authentication auth, @PathVariable UUID id) {
+        UUID userId = (UUID) auth.getPrincipal();
+        Map<String, Object> job = jobs.find(userId, id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    // SSE: a "status" event whenever the job changes state, then "done" with the finished job
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> jobEvents(Authentication auth, @PathVariable UUID id) {
+        UUID userId = (UUID) auth.getPrincipal();
+
+        // the job may finish on any node, so watch the row rather than a local signal
+        return Flux.interval(Duration.ZERO, Duration.ofMillis(jobPollMs))
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromCallable(() -> Optional.ofNullable(jobs.find(userId, id)))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .takeUntil(job -> job.isEmpty() || AiChatJobService.isFinished(job.get()))
+                .distinctUntilChanged(job -> job.map(j -> j.get("status")).orElse("missing"))
+                .map(job -> job
+                        .map(j -> ServerSentEvent.<Object>builder(j)
+                                .event(AiChatJobService.isFinished(j) ? "done" : "status")
+                                .build())
+                        .orElseGet(() -> ServerSentEvent.<Object>builder(Map.of("error", "Job not found"))
+                                .event("error")
+                                .build()));
+    }
+
+    // SSE: "token" events while the model generates, then one "done" event with actions + snapshot
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> chatStream(Authentication auth, @RequestBody AiChatRequest req) {
         UUID userId = (UUID) auth.getPrincipal();
-        return service.chat(userId, req.getMessage());
+        return service.chatStream(userId, req.getMessage());
+    }
+
+    @ExceptionHandler(AiOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> overloaded(AiOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage(), "retryAfterSeconds", e.getRetryAfterSeconds()));
     }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, Object>> invalidCursor(InvalidCursorException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<Map<String, Object>> keyReused(IdempotencyKeyReusedException e) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of("error", e.getMessage()));
+    }
+
+    // newest first; pass nextCursor back as ?before= to page further into the past
     @GetMapping("/history")
-    public List<AiMessage> history(Authentication auth) {
+    public Map<String, Object> history(
+            Authentication auth,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) Integer limit
+    ) {
         UUID userId = (UUID) auth.getPrincipal();
-        return service.getHistory(userId);
+        return service.getHistory(userId, before, limit);
     }
 
 }
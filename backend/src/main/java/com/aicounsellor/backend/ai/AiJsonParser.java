@@ -1,49 +1,204 @@
 package com.aicounsellor.backend.ai;
 
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.io.StringReader;
 
 import org.springframework.stereotype.Component;
 
+import com.aicounsellor.backend.ai.dto.AiModelOutput;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 @Component
 public class AiJsonParser {
 
     private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory factory = mapper.getFactory();
+    private final ObjectReader outputReader = mapper.readerFor(AiModelOutput.class);
 
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> extractJson(Map<String, Object> raw) {
-        try {
-            String text = null;
+    // Where the model's text lives in each provider's response body.
+    private static final String[] GEMINI_TEXT = {"[0]", "content", "parts", "[0]", "text"};   // under "candidates"
+    private static final String[] OPENAI_TEXT = {"[0]", "message", "content"};                 // under "choices"
+
+    /** Token counts reported by the provider for one call. */
+    public record TokenUsage(long input, long output) {}
+
+    /** Provider response body -> typed {reply, actions}. */
+    public AiModelOutput parse(byte[] raw) {
+        return parseText(extractText(raw));
+    }
 
-            // ✅ Gemini format
-            if (raw.containsKey("candidates")) {
-                var candidates = (List<Map<String, Object>>) raw.get("candidates");
-                var c0 = candidates.get(0);
-                var content = (Map<String, Object>) c0.get("content");
-                var parts = (List<Map<String, Object>>) content.get("parts");
-                text = String.valueOf(parts.get(0).get("text"));
+    /**
+     * Streams through the raw response and returns only the model text,
+     * skipping every other subtree (usage, safety ratings, ...) without
+     * materializing it.
+     */
+    public String extractText(byte[] raw) {
+        try (JsonParser p = factory.createParser(raw)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new RuntimeException("Unknown AI response format");
             }
 
-            // ✅ OpenRouter / Perplexity format (OpenAI compatible)
-            if (text == null && raw.containsKey("choices")) {
-                var choices = (List<Map<String, Object>>) raw.get("choices");
-                var m0 = (Map<String, Object>) choices.get(0).get("message");
-                text = String.valueOf(m0.get("content"));
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+
+                // ✅ Gemini format
+                if ("candidates".equals(field)) {
+                    return require(walk(p, GEMINI_TEXT));
+                }
+
+                // ✅ OpenRouter / Perplexity format (OpenAI compatible)
+                if ("choices".equals(field)) {
+                    return require(walk(p, OPENAI_TEXT));
+                }
+
+                p.skipChildren();
             }
 
-            if (text == null) {
-                throw new RuntimeException("Unknown AI response format");
+            throw new RuntimeException("Unknown AI response format");
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse AI JSON output: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads usageMetadata (Gemini) or usage (OpenAI compatible) from a raw
+     * response, skipping everything else. Null when the body carries neither.
+     */
+    public TokenUsage usage(byte[] raw) {
+        try (JsonParser p = factory.createParser(raw)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return null;
             }
 
-            // Strip ```json fences
-            text = text.replace("```json", "").replace("```", "").trim();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
 
-            return mapper.readValue(text, Map.class);
+                if ("usageMetadata".equals(field)) {
+                    return counts(p, "promptTokenCount", "candidatesTokenCount");
+                }
+                if ("usage".equals(field)) {
+                    return counts(p, "prompt_tokens", "completion_tokens");
+                }
 
-        } catch (Exception e) {
+                p.skipChildren();
+            }
+            return null;
+
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Parses the model's text output (the {reply, actions} object), tolerating ```json fences.
+    public AiModelOutput parseText(String text) {
+        try {
+            // start at the first brace instead of stripping fences; anything after the object is ignored
+            int start = text.indexOf('{');
+            if (start < 0) {
+                throw new RuntimeException("no JSON object in model output");
+            }
+
+            StringReader in = new StringReader(text);
+            in.skip(start);
+            return outputReader.readValue(in);
+
+        } catch (IOException e) {
             throw new RuntimeException("Failed to parse AI JSON output: " + e.getMessage());
         }
     }
+
+    // Text delta carried by one streamed chunk (Gemini SSE or OpenAI-compatible SSE).
+    public String extractStreamDelta(String chunk) {
+        try {
+            JsonNode node = mapper.readTree(chunk);
+
+            // Gemini streamGenerateContent
+            JsonNode gemini = node.at("/candidates/0/content/parts/0/text");
+            if (gemini.isTextual()) {
+                return gemini.asText();
+            }
+
+            // OpenAI compatible stream=true
+            JsonNode openAi = node.at("/choices/0/delta/content");
+            if (openAi.isTextual()) {
+                return openAi.asText();
+            }
+
+            return "";
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse AI stream chunk: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Follows a path from the current token: "[0]" steps into the first array
+     * element, a name steps into that object field. Returns the string at the
+     * end of the path, or null if the shape does not match.
+     */
+    private String walk(JsonParser p, String[] path) throws IOException {
+        for (String step : path) {
+            if ("[0]".equals(step)) {
+                if (p.currentToken() != JsonToken.START_ARRAY || p.nextToken() == JsonToken.END_ARRAY) {
+                    return null;
+                }
+                continue;
+            }
+
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            boolean found = false;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                if (step.equals(name)) {
+                    found = true;
+                    break;
+                }
+                p.skipChildren();
+            }
+            if (!found) {
+                return null;
+            }
+        }
+
+        return p.currentToken() == JsonToken.VALUE_STRING ? p.getText() : null;
+    }
+
+    private TokenUsage counts(JsonParser p, String inputField, String outputField) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+
+        long input = 0;
+        long output = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            if (inputField.equals(name)) {
+                input = p.getValueAsLong();
+            } else if (outputField.equals(name)) {
+                output = p.getValueAsLong();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new TokenUsage(input, output);
+    }
+
+    private String require(String text) {
+        if (text == null) {
+            throw new RuntimeException("Unknown AI response format");
+        }
+        return text;
+    }
 }
@@ -8,7 +8,10 @@ import lombok.Data;
 
 @Data
 @Entity
-@Table(name = "ai_messages")
+@Table(name = "ai_messages", indexes = {
+        // keyset pagination of /ai/history: user_id = ? order by created_at desc, id desc
+        @Index(name = "idx_ai_messages_user_created_id", columnList = "user_id, created_at, id")
+})
 public class AiMessage {
 
     @Id
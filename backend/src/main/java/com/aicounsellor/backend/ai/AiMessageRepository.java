@@ -1,11 +1,40 @@
 package com.aicounsellor.backend.ai;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.aicounsellor.backend.ai.dto.AiMessageView;
 
 public interface AiMessageRepository extends JpaRepository<AiMessage, UUID> {
 
-    List<AiMessage> findByUserIdOrderByCreatedAtAsc(UUID userId);
+    // newest page; both queries walk idx_ai_messages_user_created_id backwards
+    // (db/migrations/V1__ai_messages_history_index.sql)
+    @Query("""
+            select new com.aicounsellor.backend.ai.dto.AiMessageView(m.id, m.role, m.content, m.createdAt)
+            from AiMessage m
+            where m.userId = :userId
+            order by m.createdAt desc, m.id desc
+            """)
+    List<AiMessageView> findLatest(@Param("userId") UUID userId, Limit limit);
+
+    // keyset page strictly older than (createdAt, id)
+    @Query("""
+            select new com.aicounsellor.backend.ai.dto.AiMessageView(m.id, m.role, m.content, m.createdAt)
+            from AiMessage m
+            where m.userId = :userId
+              and (m.createdAt < :createdAt or (m.createdAt = :createdAt and m.id < :id))
+            order by m.createdAt desc, m.id desc
+            """)
+    List<AiMessageView> findBefore(
+            @Param("userId") UUID userId,
+            @Param("createdAt") OffsetDateTime createdAt,
+            @Param("id") UUID id,
+            Limit limit
+    );
 }
@@ -0,0 +1,303 @@
+package com.aicounsellor.backend.ai;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.aicounsellor.backend.ai.dto.AiMessageView;
+
+/**
+ * Write-behind for ai_messages. Chat turns enqueue rows and return; a single
+ * flusher thread inserts them in JDBC batches once {@code batchSize} rows are
+ * waiting or the oldest has waited {@code flushIntervalMs}. Rows stay visible
+ * through {@link #pending} until their batch has committed, so history reads
+ * still see them. A batch that fails {@code maxAttempts} times is parked, not
+ * dropped: its rows stay in {@link #pending} and the flusher retries them with
+ * exponential backoff until the database takes them. On shutdown the queue is
+ * drained before the DataSource goes.
+ */
+@Component
+public class AiMessageWriter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AiMessageWriter.class);
+
+    private static final long MAX_RETRY_BACKOFF_MS = 60_000;
+
+    private static final String INSERT_SQL =
+            "insert into public.ai_messages (id, user_id, role, content, created_at) values (?, ?, ?, ?, ?) "
+                    + "on conflict (id) do nothing";
+
+    // Postgres orders uuids bytewise; UUID.compareTo compares signed longs
+    static final Comparator<AiMessageView> NEWEST_FIRST = Comparator
+            .comparing((AiMessageView v) -> v.getCreatedAt().toInstant())
+            .thenComparing(AiMessageView::getId, (a, b) -> {
+                int c = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+                return c != 0 ? c : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+            })
+            .reversed();
+
+    private final JdbcTemplate jdbc;
+    private final BlockingQueue<AiMessage> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    // batches that ran out of attempts; retried by the flusher, still visible via pending
+    private final ConcurrentLinkedQueue<AiMessage> parked = new ConcurrentLinkedQueue<>();
+    // flusher thread only
+    private long parkedBackoffMs;
+    private long parkedRetryAt;
+
+    // queued + in-flight rows per user, until their batch commits
+    private final Map<UUID, Map<UUID, AiMessage>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong inlineFlushes = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+
+    private volatile boolean running = false;
+    private Thread flusher;
+
+    public AiMessageWriter(
+            JdbcTemplate jdbc,
+            @Value("${app.ai.messages.queueCapacity:10000}") int queueCapacity,
+            @Value("${app.ai.messages.batchSize:100}") int batchSize,
+            @Value("${app.ai.messages.flushIntervalMs:200}") long flushIntervalMs,
+            @Value("${app.ai.messages.maxAttempts:3}") int maxAttempts,
+            @Value("${app.ai.messages.retryBackoffMs:1000}") long retryBackoffMs
+    ) {
+        this.jdbc = jdbc;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.parkedBackoffMs = retryBackoffMs;
+    }
+
+    /**
+     * Queues a message for insertion; id and createdAt are assigned here so the
+     * row can be served from memory before it reaches the database. When the
+     * queue is full the caller writes the backlog itself (backpressure instead
+     * of unbounded memory).
+     */
+    public AiMessage enqueue(UUID userId, String role, String content) {
+        AiMessage m = new AiMessage();
+        m.setId(UUID.randomUUID());
+        m.setUserId(userId);
+        m.setRole(role);
+        m.setContent(content);
+        // timestamptz keeps microseconds; match it so cursors agree with the DB
+        m.setCreatedAt(OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS));
+
+        // inside compute, so write() cannot drop the user's map between lookup and put
+        pending.compute(userId, (u, mine) -> {
+            if (mine == null) mine = new ConcurrentHashMap<>();
+            mine.put(m.getId(), m);
+            return mine;
+        });
+        enqueued.incrementAndGet();
+
+        if (!running || !queue.offer(m)) {
+            List<AiMessage> batch = new ArrayList<>();
+            batch.add(m);
+            queue.drainTo(batch, batchSize - 1);
+            inlineFlushes.incrementAndGet();
+            write(batch);
+        }
+        return m;
+    }
+
+    /** Rows of this user that are not committed yet, as history views. */
+    public List<AiMessageView> pendingFor(UUID userId) {
+        Map<UUID, AiMessage> mine = pending.get(userId);
+        if (mine == null) return List.of();
+
+        List<AiMessageView> out = new ArrayList<>(mine.size());
+        for (AiMessage m : mine.values()) {
+            out.add(new AiMessageView(m.getId(), m.getRole(), m.getContent(), m.getCreatedAt()));
+        }
+        return out;
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "queued", queue.size(),
+                "enqueued", enqueued.get(),
+                "written", written.get(),
+                "batches", batches.get(),
+                "inlineFlushes", inlineFlushes.get(),
+                "failedRows", failedRows.get(),
+                "parked", parked.size()
+        );
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = new Thread(this::flushLoop, "ai-message-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            flusher.join(30_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // anything enqueued while we were stopping
+        drainAll();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // below the web server's phases: stop only after it has stopped taking requests
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 4096;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                retryParked();
+
+                AiMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                List<AiMessage> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long flushAt = System.currentTimeMillis() + flushIntervalMs;
+
+                // linger until the batch is full or the oldest row is due
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = flushAt - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || wait <= 0 || !running) break;
+                    AiMessage next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("ai message flusher failed", e);
+            }
+        }
+        drainAll();
+    }
+
+    private void drainAll() {
+        List<AiMessage> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+        // last chance for parked rows; whatever is still refused is lost with the process
+        parkedRetryAt = 0;
+        retryParked();
+        if (!parked.isEmpty()) {
+            log.error("shutting down with {} ai messages not written", parked.size());
+        }
+    }
+
+    /** One attempt at the parked rows once their backoff has passed; doubles the backoff on failure. */
+    void retryParked() {
+        if (parked.isEmpty() || System.currentTimeMillis() < parkedRetryAt) return;
+
+        int retried = 0;
+        while (!parked.isEmpty()) {
+            List<AiMessage> batch = new ArrayList<>(batchSize);
+            for (AiMessage m; batch.size() < batchSize && (m = parked.poll()) != null; ) batch.add(m);
+            if (batch.isEmpty()) break;
+
+            try {
+                insert(batch);
+            } catch (RuntimeException e) {
+                parked.addAll(batch);
+                parkedBackoffMs = Math.min(parkedBackoffMs * 2, MAX_RETRY_BACKOFF_MS);
+                parkedRetryAt = System.currentTimeMillis() + parkedBackoffMs;
+                log.error("retry of {} parked ai messages failed, next try in {} ms", parked.size(), parkedBackoffMs, e);
+                return;
+            }
+            committed(batch);
+            retried += batch.size();
+        }
+        parkedBackoffMs = retryBackoffMs;
+        log.info("wrote {} parked ai messages", retried);
+    }
+
+    // ON CONFLICT makes a retry after an ambiguous failure (e.g. lost commit ack) safe
+    private void write(List<AiMessage> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                insert(batch);
+                committed(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    failedRows.addAndGet(batch.size());
+                    parked.addAll(batch);
+                    log.error("ai message batch of {} rows failed {} times, parked for retry", batch.size(), attempt, e);
+                    return;
+                }
+                log.warn("ai message batch of {} rows failed (attempt {}): {}", batch.size(), attempt, e.getMessage());
+                try {
+                    Thread.sleep(100L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void insert(List<AiMessage> batch) {
+        jdbc.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, m) -> {
+            ps.setObject(1, m.getId());
+            ps.setObject(2, m.getUserId());
+            ps.setString(3, m.getRole());
+            ps.setString(4, m.getContent());
+            ps.setObject(5, m.getCreatedAt());
+        });
+        batches.incrementAndGet();
+        written.addAndGet(batch.size());
+    }
+
+    private void committed(List<AiMessage> batch) {
+        for (AiMessage m : batch) {
+            pending.computeIfPresent(m.getUserId(), (u, mine) -> {
+                mine.remove(m.getId());
+                return mine.isEmpty() ? null : mine;
+            });
+        }
+    }
+}
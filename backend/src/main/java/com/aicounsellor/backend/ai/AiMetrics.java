@@ -0,0 +1,138 @@
+package com.aicounsellor.backend.ai;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters for the chat path, exported via /actuator/prometheus:
+ *
+ *   ai.provider.latency     timer (histogram), provider/model/outcome
+ *   ai.provider.ttft        timer (histogram), time to first streamed chunk
+ *   ai.provider.tokens      counter, provider/model/direction (input|output)
+ *   ai.provider.fallbacks   counter, provider that failed and was skipped over
+ *   ai.parse.failures       counter, path (chat|cache|stream)
+ *   ai.chat.fallbacks       counter, kind (soft|hard) and reason
+ *   ai.jobs.queue.depth     gauge, queued async chat jobs (all nodes)
+ *   ai.jobs.wait / run      timers, queued->claimed and claimed->finished, by status
+ *   ai.reply.universities   counter, catalog universities named in replies, by verified (true|false)
+ *   ai.reply.unverified     counter, replies naming at least one university not in their context
+ *   ai.reply.validation     timer, time spent scanning a reply for university names
+ */
+@Component
+public class AiMetrics {
+
+    private final MeterRegistry registry;
+
+    public AiMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** outcome: success | error | timeout | cancelled (e.g. the losing side of a hedge) */
+    public void providerCall(LLMClient client, String outcome, long nanos) {
+        Timer.builder("ai.provider.latency")
+                .description("LLM provider call latency")
+                .tags("provider", client.name(), "model", client.model(), "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void firstToken(LLMClient client, long nanos) {
+        Timer.builder("ai.provider.ttft")
+                .description("Time to first streamed chunk")
+                .tags("provider", client.name(), "model", client.model())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void tokens(LLMClient client, AiJsonParser.TokenUsage usage) {
+        if (usage == null) return;
+        tokenCounter(client, "input").increment(usage.input());
+        tokenCounter(client, "output").increment(usage.output());
+    }
+
+    public void providerFallback(LLMClient failed) {
+        Counter.builder("ai.provider.fallbacks")
+                .description("Provider attempts that failed and were followed by another provider")
+                .tag("provider", failed.name())
+                .register(registry)
+                .increment();
+    }
+
+    public void parseFailure(String path) {
+        Counter.builder("ai.parse.failures")
+                .description("Model output that did not parse as {reply, actions}")
+                .tag("path", path)
+                .register(registry)
+                .increment();
+    }
+
+    /** soft: parsed but no reply ("warming up, retry"); hard: nothing usable at all */
+    public void chatFallback(String kind, String reason) {
+        Counter.builder("ai.chat.fallbacks")
+                .description("Chat turns answered with a canned fallback reply")
+                .tags("kind", kind, "reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    public void jobQueueDepth(AtomicLong depth) {
+        Gauge.builder("ai.jobs.queue.depth", depth, AtomicLong::get)
+                .description("Async chat jobs waiting to be claimed")
+                .register(registry);
+    }
+
+    public void jobFinished(String status, Duration wait, long runNanos) {
+        Timer.builder("ai.jobs.wait")
+                .description("Time an async chat job spent queued")
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(wait);
+        Timer.builder("ai.jobs.run")
+                .description("Time an async chat job spent running")
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(runNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void replyValidated(int mentions, int unverified, long nanos) {
+        Counter.builder("ai.reply.universities")
+                .description("Catalog universities named in AI replies")
+                .tag("verified", "true")
+                .register(registry)
+                .increment(mentions - unverified);
+        Counter.builder("ai.reply.universities")
+                .description("Catalog universities named in AI replies")
+                .tag("verified", "false")
+                .register(registry)
+                .increment(unverified);
+        if (unverified > 0) {
+            Counter.builder("ai.reply.unverified")
+                    .description("AI replies naming a university that was not in their context")
+                    .register(registry)
+                    .increment();
+        }
+        Timer.builder("ai.reply.validation")
+                .description("Time spent checking an AI reply for university names")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter tokenCounter(LLMClient client, String direction) {
+        return Counter.builder("ai.provider.tokens")
+                .description("Tokens reported by the provider")
+                .tags("provider", client.name(), "model", client.model(), "direction", direction)
+                .register(registry);
+    }
+}
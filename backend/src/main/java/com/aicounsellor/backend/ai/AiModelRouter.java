@@ -1,53 +1,431 @@
 package com.aicounsellor.backend.ai;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
 @Component
 public class AiModelRouter {
 
+    private static final Logger log = LoggerFactory.getLogger(AiModelRouter.class);
+
     @Value("${app.ai.provider:auto}")
     private String provider;
 
+    // budget for callers that do not bring their own deadline (e.g. warmup)
+    @Value("${app.ai.deadlineMs:20000}")
+    private long defaultDeadlineMs;
+
+    // hedge mode: fire the secondary once the primary is slower than this percentile of its recent calls
+    @Value("${app.ai.hedge.percentile:95}")
+    private double hedgePercentile;
+
+    @Value("${app.ai.hedge.minDelayMs:300}")
+    private long hedgeMinDelayMs;
+
+    @Value("${app.ai.hedge.maxDelayMs:8000}")
+    private long hedgeMaxDelayMs;
+
+    // used until the primary has enough samples for a meaningful percentile
+    @Value("${app.ai.hedge.initialDelayMs:2500}")
+    private long hedgeInitialDelayMs;
+
+    @Value("${app.ai.hedge.minSamples:20}")
+    private int hedgeMinSamples;
+
+    // longest gap allowed between streamed tokens (and before the first one)
+    @Value("${app.ai.stream.idleTimeoutMs:15000}")
+    private long streamIdleTimeoutMs;
+
     private final GeminiClient gemini;
     private final GroqClient groq;
+    private final LocalLLMClient local;
+    private final ResponseRecorder recorder;
+    private final AiJsonParser parser;
+    private final AiMetrics metrics;
 
-    public AiModelRouter(GeminiClient gemini, GroqClient groq) {
+    private final ProviderHealthRegistry health;
+
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    private final AtomicLong hedgedRequests = new AtomicLong();
+    private final AtomicLong hedgesFired = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    private final AiAdmissionController admission;
+
+    public AiModelRouter(
+            GeminiClient gemini,
+            GroqClient groq,
+            LocalLLMClient local,
+            ProviderHealthRegistry health,
+            AiAdmissionController admission,
+            ResponseRecorder recorder,
+            AiJsonParser parser,
+            AiMetrics metrics
+    ) {
         this.gemini = gemini;
         this.groq = groq;
+        this.local = local;
+        this.recorder = recorder;
+        this.parser = parser;
+        this.metrics = metrics;
+        this.health = health;
+        this.admission = admission;
     }
 
-    public Map<String, Object> generateRaw(String systemPrompt, String userPrompt) {
+    public byte[] generateRaw(String systemPrompt, String userPrompt) {
+        return generateRaw(null, systemPrompt, userPrompt, Deadline.after(Duration.ofMillis(defaultDeadlineMs)));
+    }
+
+    /**
+     * @param userId used for fair queuing when a provider is at its concurrency
+     *               limit; null for system calls such as warmup
+     * @throws AiOverloadedException when no provider could admit the call
+     */
+    public byte[] generateRaw(UUID userId, String systemPrompt, String userPrompt, Deadline deadline) {
         String p = provider == null ? "auto" : provider.toLowerCase();
 
-        if (!"auto".equals(p)) {
-            return pick(p).generateRaw(systemPrompt, userPrompt);
+        if (!"auto".equals(p) && !"hedge".equals(p)) {
+            return admitted(pick(p), userId, systemPrompt, userPrompt, deadline).block();
         }
 
-        // auto fallback order
-        List<LLMClient> order = List.of(gemini, groq);
+        // fallback order: healthy and fast providers first, open circuits are skipped
+        Route route = route();
+        List<LLMClient> order = route.order();
+
+        if ("hedge".equals(p) && order.size() >= 2) {
+            return hedged(order.get(0), order.get(1), route.forced(), userId, systemPrompt, userPrompt, deadline);
+        }
 
         RuntimeException last = null;
-        for (LLMClient client : order) {
+        AiOverloadedException overloaded = null;
+        int overloadedCount = 0;
+        for (int i = 0; i < order.size(); i++) {
+            LLMClient client = order.get(i);
+            if (deadline.isExpired()) {
+                last = new RuntimeException("deadline exceeded before trying " + client.name());
+                break;
+            }
             try {
-            	 System.out.println("AI_PROVIDER_USING: " + client.name());
-                return client.generateRaw(systemPrompt, userPrompt);
+                return dispatched(client, route.forced(), userId, systemPrompt, userPrompt, deadline).block();
+            } catch (AiOverloadedException e) {
+                // busy, not broken: move on without charging the provider's health
+                last = e;
+                overloaded = e;
+                overloadedCount++;
+                log.warn("provider {} busy: {}", client.name(), e.getMessage());
             } catch (RuntimeException e) {
                 last = e;
-                System.out.println("AI_PROVIDER_FAIL: " + client.name() + " -> " + e.getMessage());
+                log.warn("provider {} failed: {}", client.name(), e.getMessage());
+            }
+            if (i + 1 < order.size()) {
+                metrics.providerFallback(client);
             }
         }
 
+        if (overloaded != null && overloadedCount == order.size()) {
+            throw overloaded;
+        }
+
         throw new RuntimeException("All AI providers failed: " + (last != null ? last.getMessage() : ""));
     }
 
+    // Candidates in fallback order; `forced` when every circuit is open and all are tried anyway.
+    private record Route(List<LLMClient> order, boolean forced) {}
+
+    // Providers whose circuit would let a call through. Only a peek: the
+    // half-open probe slot is claimed by dispatched(), so ranking a provider
+    // that is never called does not use up its probe. If every circuit is open
+    // we still try them all rather than fail without asking anyone.
+    private Route route() {
+        List<LLMClient> ranked = health.rank(List.of(gemini, groq));
+        List<LLMClient> out = new ArrayList<>();
+        for (LLMClient c : ranked) {
+            if (health.mayAllow(c)) {
+                out.add(c);
+            } else {
+                log.debug("provider {} skipped, circuit open", c.name());
+            }
+        }
+        return out.isEmpty() ? new Route(ranked, true) : new Route(out, false);
+    }
+
+    // Asks the circuit at subscription time, i.e. only when the call really goes
+    // out. A probe that then waits for admission in vain is handed back.
+    private Mono<byte[]> dispatched(LLMClient client, boolean forced, UUID userId, String systemPrompt, String userPrompt,
+                                    Deadline deadline) {
+        return Mono.defer(() -> {
+            if (!health.allowRequest(client) && !forced) {
+                return Mono.error(new RuntimeException("circuit open for provider " + client.name()));
+            }
+            return admitted(client, userId, systemPrompt, userPrompt, deadline)
+                    .doOnError(AiOverloadedException.class, e -> health.recordCancelled(client));
+        });
+    }
+
+    // Which provider produced a hedged result, and whether it was the hedge.
+    private record Attempt(String provider, boolean hedge, byte[] body) {}
+
+    /**
+     * Sends the prompt to the primary; if it has not answered within the hedge
+     * delay, counted from this call and including any wait for admission (or
+     * fails earlier), the same prompt goes to the secondary. The first
+     * successful answer wins and the other subscription is cancelled, which
+     * aborts its HTTP exchange.
+     */
+    private byte[] hedged(
+            LLMClient primary,
+            LLMClient secondary,
+            boolean forced,
+            UUID userId,
+            String systemPrompt,
+            String userPrompt,
+            Deadline deadline
+    ) {
+        long delayMs = hedgeDelayMs(primary);
+        hedgedRequests.incrementAndGet();
+
+        Sinks.Empty<Void> primaryFailed = Sinks.empty();
+        AtomicReference<AiOverloadedException> overloaded = new AtomicReference<>();
+        AtomicInteger overloadedCount = new AtomicInteger();
+
+        // admission may block: subscribing on the caller's thread would hold back the hedge
+        // timer until the primary got its permit, so the delay must start here, not after
+        Mono<Attempt> primaryCall = dispatched(primary, forced, userId, systemPrompt, userPrompt, deadline)
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(body -> new Attempt(primary.name(), false, body))
+                .doOnError(e -> {
+                    log.warn("provider {} failed: {}", primary.name(), e.getMessage());
+                    metrics.providerFallback(primary);
+                    if (e instanceof AiOverloadedException o) {
+                        overloaded.set(o);
+                        overloadedCount.incrementAndGet();
+                    }
+                    primaryFailed.tryEmitEmpty();
+                });
+
+        Mono<Attempt> hedgeCall = Mono.firstWithSignal(Mono.delay(Duration.ofMillis(delayMs)).then(), primaryFailed.asMono())
+                .then(Mono.defer(() -> {
+                    hedgesFired.incrementAndGet();
+                    log.debug("hedging to provider {} after {}ms", secondary.name(), delayMs);
+                    // admission may block; never do that on the timer thread
+                    return dispatched(secondary, forced, userId, systemPrompt, userPrompt, deadline)
+                            .subscribeOn(Schedulers.boundedElastic());
+                }))
+                .map(body -> new Attempt(secondary.name(), true, body))
+                .doOnError(e -> {
+                    if (e instanceof AiOverloadedException o) {
+                        overloaded.set(o);
+                        overloadedCount.incrementAndGet();
+                    }
+                });
+
+        try {
+            Attempt winner = Mono.firstWithValue(primaryCall, hedgeCall).block();
+            if (winner.hedge()) {
+                hedgeWins.incrementAndGet();
+            }
+            return winner.body();
+        } catch (RuntimeException e) {
+            if (overloadedCount.get() == 2) {
+                throw overloaded.get();
+            }
+            throw new RuntimeException("All AI providers failed: " + e.getMessage());
+        }
+    }
+
+    private long hedgeDelayMs(LLMClient primary) {
+        LatencyWindow w = latency(primary);
+        if (w.size() < hedgeMinSamples) {
+            return hedgeInitialDelayMs;
+        }
+        long p = w.percentile(hedgePercentile);
+        return Math.max(hedgeMinDelayMs, Math.min(p, hedgeMaxDelayMs));
+    }
+
+    // Holds an admission permit for exactly as long as the provider call is
+    // subscribed: released on success, error and cancellation alike.
+    private Mono<byte[]> admitted(LLMClient client, UUID userId, String systemPrompt, String userPrompt, Deadline deadline) {
+        return Mono.using(
+                () -> admission.acquire(client, userId, deadline),
+                permit -> timed(client, systemPrompt, userPrompt, deadline),
+                AiAdmissionController.Permit::close
+        );
+    }
+
+    // The timeout is taken from the deadline at subscription time, so a late
+    // attempt (fallback, hedge) only gets what is left of the budget.
+    private Mono<byte[]> timed(LLMClient client, String systemPrompt, String userPrompt, Deadline deadline) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return client.generate(systemPrompt, userPrompt)
+                    .timeout(deadline.remaining())
+                    .doOnNext(r -> {
+                        long nanos = System.nanoTime() - start;
+                        long ms = nanos / 1_000_000;
+                        latency(client).record(ms);
+                        health.recordSuccess(client, ms);
+                        metrics.providerCall(client, "success", nanos);
+                        metrics.tokens(client, parser.usage(r));
+                        recorder.record(client.name(), client.wireFormat(), systemPrompt, userPrompt, r);
+                    })
+                    .doOnError(e -> {
+                        health.recordFailure(client);
+                        metrics.providerCall(client, e instanceof TimeoutException ? "timeout" : "error", System.nanoTime() - start);
+                    })
+                    .doOnCancel(() -> {
+                        health.recordCancelled(client);
+                        metrics.providerCall(client, "cancelled", System.nanoTime() - start);
+                    });
+        });
+    }
+
+    private LatencyWindow latency(LLMClient client) {
+        return latencies.computeIfAbsent(client.name(), n -> new LatencyWindow(256));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> providers = new LinkedHashMap<>();
+        for (LLMClient client : clients()) {
+            LatencyWindow w = latency(client);
+            providers.put(client.name(), Map.of(
+                    "samples", w.size(),
+                    "p50Ms", w.percentile(50),
+                    "p95Ms", w.percentile(95),
+                    "p99Ms", w.percentile(99)
+            ));
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("provider", provider);
+        out.put("latency", providers);
+        out.put("health", health());
+        out.put("admission", admission.snapshot(clients()));
+        out.put("hedge", Map.of(
+                "requests", hedgedRequests.get(),
+                "fired", hedgesFired.get(),
+                "wins", hedgeWins.get(),
+                "currentDelayMs", hedgeDelayMs(clients().get(0))
+        ));
+        return out;
+    }
+
+    public Map<String, Object> health() {
+        return health.snapshot(clients());
+    }
+
+    // the stand-in only shows up in stats when it is the configured provider
+    private List<LLMClient> clients() {
+        return "local".equalsIgnoreCase(provider) ? List.of(local) : List.of(gemini, groq);
+    }
+
+    /**
+     * Streams the reply text. The stream fails with a TimeoutException when no
+     * token arrives for {@code app.ai.stream.idleTimeoutMs} or the deadline
+     * passes, whichever comes first.
+     */
+    public Flux<String> streamText(UUID userId, String systemPrompt, String userPrompt, Deadline deadline) {
+        String p = provider == null ? "auto" : provider.toLowerCase();
+
+        if (!"auto".equals(p) && !"hedge".equals(p)) {
+            return admittedStream(pick(p), userId, systemPrompt, userPrompt, deadline);
+        }
+
+        Route route = route();
+        return streamWithFallback(route.order(), route.forced(), 0, userId, systemPrompt, userPrompt, deadline);
+    }
+
+    // streams hold their permit until the last token (or cancellation)
+    private Flux<String> admittedStream(LLMClient client, UUID userId, String systemPrompt, String userPrompt, Deadline deadline) {
+        return Flux.using(
+                () -> admission.acquire(client, userId, deadline),
+                permit -> {
+                    long start = System.nanoTime();
+                    AtomicBoolean first = new AtomicBoolean(true);
+                    // each gap gets the idle timeout, cut short by what is left of the deadline
+                    return client.streamText(systemPrompt, userPrompt)
+                            .timeout(Mono.defer(() -> gapTimeout(deadline)), t -> gapTimeout(deadline))
+                            .doOnNext(t -> {
+                                if (first.compareAndSet(true, false)) {
+                                    metrics.firstToken(client, System.nanoTime() - start);
+                                }
+                            })
+                            .doOnComplete(() -> {
+                                health.recordSuccess(client);
+                                metrics.providerCall(client, "success", System.nanoTime() - start);
+                            })
+                            .doOnError(e -> {
+                                health.recordFailure(client);
+                                metrics.providerCall(client, e instanceof TimeoutException ? "timeout" : "error", System.nanoTime() - start);
+                            })
+                            .doOnCancel(() -> {
+                                health.recordCancelled(client);
+                                metrics.providerCall(client, "cancelled", System.nanoTime() - start);
+                            });
+                },
+                AiAdmissionController.Permit::close
+        );
+    }
+
+    private Mono<Long> gapTimeout(Deadline deadline) {
+        return Mono.delay(Duration.ofMillis(Math.min(streamIdleTimeoutMs, deadline.remaining().toMillis())));
+    }
+
+    // Falls back to the next provider only while nothing has been emitted yet;
+    // once tokens reached the client, switching models mid-reply would garble it.
+    private Flux<String> streamWithFallback(List<LLMClient> order, boolean forced, int i, UUID userId, String systemPrompt,
+                                            String userPrompt, Deadline deadline) {
+        if (i >= order.size()) {
+            return Flux.error(new RuntimeException("All AI providers failed"));
+        }
+
+        LLMClient client = order.get(i);
+        AtomicBoolean emitted = new AtomicBoolean(false);
+
+        return Flux.defer(() -> {
+                    if (!health.allowRequest(client) && !forced) {
+                        return Flux.<String>error(new RuntimeException("circuit open for provider " + client.name()));
+                    }
+                    return admittedStream(client, userId, systemPrompt, userPrompt, deadline)
+                            .doOnError(AiOverloadedException.class, e -> health.recordCancelled(client));
+                })
+                .doOnNext(t -> emitted.set(true))
+                .onErrorResume(e -> !emitted.get(), e -> {
+                    log.warn("provider {} failed: {}", client.name(), e.getMessage());
+                    if (i + 1 < order.size()) {
+                        metrics.providerFallback(client);
+                    }
+                    // no time left: report the timeout rather than start another provider
+                    if (deadline.isExpired()) return Flux.error(e);
+                    return streamWithFallback(order, forced, i + 1, userId, systemPrompt, userPrompt, deadline);
+                });
+    }
+
     private LLMClient pick(String p) {
         return switch (p) {
             case "gemini" -> gemini;
             case "groq" -> groq;
+            case "local" -> local;
             default -> throw new RuntimeException("Unknown AI_PROVIDER: " + p);
         };
     }
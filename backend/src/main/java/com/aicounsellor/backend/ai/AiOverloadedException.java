@@ -0,0 +1,16 @@
+package com.aicounsellor.backend.ai;
+
+/** Thrown when an LLM call cannot be admitted; surfaces as HTTP 429 with Retry-After. */
+public class AiOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AiOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,154 @@
+package com.aicounsellor.backend.ai;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.aicounsellor.backend.profile.UserContextChangedEvent;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * Bounded LRU + TTL cache of raw provider responses, keyed on a hash of the
+ * system prompt, the canonicalized context and the normalized user message.
+ * Entries are dropped when the owning user's context changes.
+ */
+@Component
+public class AiResponseCache {
+
+    @Value("${app.ai.cache.maxEntries:1000}")
+    private int maxEntries;
+
+    @Value("${app.ai.cache.ttlSeconds:600}")
+    private long ttlSeconds;
+
+    @Value("${app.ai.cache.enabled:true}")
+    private boolean enabled;
+
+    // sorted keys so the same context always hashes the same, whatever map it came from
+    private final JsonMapper canonical = JsonMapper.builder()
+            .findAndAddModules()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+            .build();
+
+    private record Entry(UUID userId, byte[] raw, long latencyMs, long bytes, long expiresAt) {}
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<UUID, Set<String>> keysByUser = new HashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long savedLatencyMs = 0;
+    private long bytes = 0;
+    private long evictions = 0;
+
+    public String key(String systemPrompt, Object context, String message) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(systemPrompt.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            sha.update(canonical.writeValueAsBytes(context));
+            sha.update((byte) 0);
+            sha.update(normalize(message).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to build AI cache key: " + e.getMessage());
+        }
+    }
+
+    // "  What NEXT?? " and "what next" should hit the same entry
+    static String normalize(String message) {
+        if (message == null) return "";
+        String s = message.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+        return s.replaceAll("[\\p{Punct}\\s]+$", "");
+    }
+
+    public synchronized byte[] get(String key) {
+        if (!enabled) return null;
+
+        Entry e = entries.get(key);
+        if (e == null || e.expiresAt() < System.currentTimeMillis()) {
+            if (e != null) remove(key);
+            misses++;
+            return null;
+        }
+
+        hits++;
+        savedLatencyMs += e.latencyMs();
+        return e.raw();
+    }
+
+    public synchronized void put(UUID userId, String key, byte[] raw, long latencyMs) {
+        if (!enabled) return;
+
+        // raw body bytes + key chars + entry/index overhead
+        long size = raw.length + 2L * key.length() + 128;
+
+        remove(key);
+
+        entries.put(key, new Entry(userId, raw, latencyMs, size, System.currentTimeMillis() + ttlSeconds * 1000));
+        keysByUser.computeIfAbsent(userId, u -> new HashSet<>()).add(key);
+        bytes += size;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            forget(eldest.getKey(), eldest.getValue());
+            evictions++;
+        }
+    }
+
+    @EventListener
+    public synchronized void onUserContextChanged(UserContextChangedEvent event) {
+        Set<String> keys = keysByUser.remove(event.userId());
+        if (keys == null) return;
+        for (String key : keys) {
+            Entry e = entries.remove(key);
+            if (e != null) bytes -= e.bytes();
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long lookups = hits + misses;
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("entries", entries.size());
+        out.put("hits", hits);
+        out.put("misses", misses);
+        out.put("hitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        out.put("savedProviderLatencyMs", savedLatencyMs);
+        out.put("estimatedBytes", bytes);
+        out.put("evictions", evictions);
+        return out;
+    }
+
+    private void remove(String key) {
+        Entry e = entries.remove(key);
+        if (e != null) forget(key, e);
+    }
+
+    private void forget(String key, Entry e) {
+        bytes -= e.bytes();
+        Set<String> keys = keysByUser.get(e.userId());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) keysByUser.remove(e.userId());
+        }
+    }
+}
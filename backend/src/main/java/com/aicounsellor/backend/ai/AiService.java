@@ -1,8 +1,18 @@
 package com.aicounsellor.backend.ai;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.*;
-
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 
 import com.aicounsellor.backend.profile.ProfileService;
@@ -11,11 +21,25 @@ import com.aicounsellor.backend.stage.StageService;
 import com.aicounsellor.backend.tasks.UserTask;
 import com.aicounsellor.backend.tasks.UserTaskRepository;
 import com.aicounsellor.backend.tasks.TaskService;
+import com.aicounsellor.backend.ai.PromptContextEncoder.EncodedContext;
+import com.aicounsellor.backend.ai.dto.AiMessageView;
+import com.aicounsellor.backend.ai.dto.AiModelOutput;
+import com.aicounsellor.backend.ai.dto.AiToolAction;
+import com.aicounsellor.backend.universities.InvalidCursorException;
+import com.aicounsellor.backend.universities.UniversityNameMatcher;
 import com.aicounsellor.backend.universities.UniversityService;
+import com.aicounsellor.backend.universities.UserUniversity;
+import com.aicounsellor.backend.universities.dto.UniversityDiscoverResponse;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @Service
 public class AiService {
 
+    private static final Logger log = LoggerFactory.getLogger(AiService.class);
+
     private final AiModelRouter router;
     private final AiJsonParser parser;
 
@@ -25,68 +49,15 @@ public class AiService {
     private final TaskService taskService;
     private final UserTaskRepository taskRepo;
     private final AiMessageRepository aiMessageRepo;
-
-
-    public AiService(
-            AiModelRouter router,
-            AiJsonParser parser,
-            ProfileService profileService,
-            StageService stageService,
-            UniversityService universityService,
-            TaskService taskService,
-            UserTaskRepository taskRepo,
-            AiMessageRepository aiMessageRepo
-    ) {
-        this.router = router;
-        this.parser = parser;
-        this.profileService = profileService;
-        this.stageService = stageService;
-        this.universityService = universityService;
-        this.taskService = taskService;
-        this.taskRepo = taskRepo;
-        this.aiMessageRepo = aiMessageRepo;
-    }
-
-    
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> chat(UUID userId, String message) {
-    	
-        AiMessage userMsg = new AiMessage();
-        userMsg.setUserId(userId);
-        userMsg.setRole("user");
-        userMsg.setContent(message);
-        userMsg.setCreatedAt(OffsetDateTime.now());
-        aiMessageRepo.save(userMsg);
-
-        int stage = stageService.recalculateStage(userId);
-        UserProfile profile = profileService.getOrCreate(userId);
-
-        // strict gating
-        boolean onboardingComplete = profile.isOnboardingCompleted();
-
-        String gating = onboardingComplete
-                ? "Onboarding complete. Recommend universities and take actions if helpful."
-                : "Onboarding incomplete. DO NOT recommend universities. Ask onboarding questions only.";
-
-        // IMPORTANT: limit available universities sent to model (avoid huge prompt)
-        List<Map<String, Object>> availableUnis = new ArrayList<>();
-        if (onboardingComplete) {
-            var discovered = universityService.discover(userId);
-            for (int i = 0; i < Math.min(discovered.size(), 25); i++) {
-                var u = discovered.get(i);
-                availableUnis.add(Map.of(
-                        "id", u.getId(),
-                        "name", u.getName(),
-                        "country", u.getCountry(),
-                        "yearlyCostUsd", u.getYearlyCostUsd(),
-                        "bucket", u.getBucket(),
-                        "acceptanceChance", u.getAcceptanceChance(),
-                        "risk", u.getRisk()
-                ));
-            }
-        }
-
-        String systemPrompt = """
+    private final AiMessageWriter messageWriter;
+    private final AiResponseCache cache;
+    private final PromptContextEncoder contextEncoder;
+    private final ChatSingleFlight singleFlight;
+    private final UniversityNameMatcher nameMatcher;
+    private final AiMetrics metrics;
+
+    // fixed per deployment; the per-turn data goes in the user prompt
+    static final String SYSTEM_PROMPT = """
         		You are AI Counsellor for a stage-based study abroad platform.
 
         		You MUST respond in strict JSON only (no markdown, no text outside JSON).
@@ -95,9 +66,9 @@ public class AiService {
         		{
         		  "reply": "string",
         		  "actions": [
-        		    {"type": "shortlist", "args": {"universityId": "<uuid>"}},
-        		    {"type": "lock", "args": {"universityId": "<uuid>"}},
-        		    {"type": "unlock", "args": {"universityId": "<uuid>"}},
+        		    {"type": "shortlist", "args": {"universityId": "<id>"}},
+        		    {"type": "lock", "args": {"universityId": "<id>"}},
+        		    {"type": "unlock", "args": {"universityId": "<id>"}},
         		    {"type": "lock_recent_shortlisted", "args": {}},
         		    {"type": "create_task", "args": {"title": "string"}}
         		  ]
@@ -107,6 +78,7 @@ public class AiService {
         		- NEVER invent (hallucinate) a university name or ID.
         		- You are ONLY allowed to mention universities that exist in:
         		  (1) shortlist OR (2) availableUniversitiesTop context.
+        		- University ids are the short aliases from context (e.g. "u3"); copy them exactly.
         		- If you cannot find an ID, do NOT guess. Ask user to shortlist first.
         		- For locking, prefer "lock_recent_shortlisted" unless the user explicitly provides an ID.
         		- If onboarding incomplete: actions MUST be [] and guide onboarding only.
@@ -122,77 +94,259 @@ public class AiService {
 
         		ACTION LIMIT:
         		- Max 3 actions.
-        		""";
-
-
-        Map<String, Object> profileMap = new LinkedHashMap<>();
-        profileMap.put("educationLevel", profile.getEducationLevel());
-        profileMap.put("major", profile.getMajor());
-        profileMap.put("gradYear", profile.getGradYear());
-        profileMap.put("gpa", profile.getGpa());
-        profileMap.put("intendedDegree", profile.getIntendedDegree());
-        profileMap.put("fieldOfStudy", profile.getFieldOfStudy());
-        profileMap.put("intakeYear", profile.getIntakeYear());
-        profileMap.put("preferredCountries", profile.getPreferredCountries());
-        profileMap.put("budgetPerYear", profile.getBudgetPerYear());
-        profileMap.put("fundingPlan", profile.getFundingPlan());
-        profileMap.put("ieltsStatus", profile.getIeltsStatus());
-        profileMap.put("greStatus", profile.getGreStatus());
-        profileMap.put("sopStatus", profile.getSopStatus());
-        profileMap.put("onboardingCompleted", profile.isOnboardingCompleted());
-
-        Map<String, Object> context = new LinkedHashMap<>();
-        context.put("stage", stage);
-        context.put("gating", gating);
-        context.put("profile", profileMap);
+        		""" + "\n" + PromptContextEncoder.LEGEND;
 
+    // total time a chat may spend waiting on providers, across all fallbacks
+    @Value("${app.ai.deadlineMs:20000}")
+    private long deadlineMs;
 
-        if (onboardingComplete) {
-            context.put("shortlist", universityService.myShortlist(userId));
-            context.put("availableUniversitiesTop", availableUnis);
+    // the same for a streamed reply, from the request until its last token
+    @Value("${app.ai.stream.deadlineMs:60000}")
+    private long streamDeadlineMs;
+
+    @Value("${app.ai.history.pageSize:50}")
+    private int historyPageSize;
+
+    @Value("${app.ai.history.maxPageSize:200}")
+    private int historyMaxPageSize;
+
+    public AiService(
+            AiModelRouter router,
+            AiJsonParser parser,
+            ProfileService profileService,
+            StageService stageService,
+            UniversityService universityService,
+            TaskService taskService,
+            UserTaskRepository taskRepo,
+            AiMessageRepository aiMessageRepo,
+            AiMessageWriter messageWriter,
+            AiResponseCache cache,
+            PromptContextEncoder contextEncoder,
+            ChatSingleFlight singleFlight,
+            UniversityNameMatcher nameMatcher,
+            AiMetrics metrics
+    ) {
+        this.router = router;
+        this.parser = parser;
+        this.profileService = profileService;
+        this.stageService = stageService;
+        this.universityService = universityService;
+        this.taskService = taskService;
+        this.taskRepo = taskRepo;
+        this.aiMessageRepo = aiMessageRepo;
+        this.messageWriter = messageWriter;
+        this.cache = cache;
+        this.contextEncoder = contextEncoder;
+        this.singleFlight = singleFlight;
+        this.nameMatcher = nameMatcher;
+        this.metrics = metrics;
+    }
+
+    
+    // Everything the provider call and the post-processing need for one chat turn.
+    private record ChatTurn(
+            UUID userId,
+            boolean onboardingComplete,
+            String systemPrompt,
+            String userPrompt,
+            Map<String, UUID> aliases,
+            String cacheKey
+    ) {}
+
+    public Map<String, Object> chat(UUID userId, String message) {
+        return chat(userId, message, null);
+    }
+
+    /**
+     * Duplicate in-flight requests from the same user (same Idempotency-Key, or
+     * without a key the same normalized message) share one turn: one LLM call,
+     * one pair of history rows, actions executed once. With a key, a real
+     * model answer is also replayed to later retries; a fallback answer is
+     * not, so the retry gets another try. A key reused with a different
+     * message is rejected.
+     */
+    public Map<String, Object> chat(UUID userId, String message, String idempotencyKey) {
+        boolean keyed = idempotencyKey != null && !idempotencyKey.isBlank();
+        String key = keyed
+                ? "idem:" + userId + ":" + idempotencyKey
+                : "msg:" + userId + ":" + AiResponseCache.normalize(message);
+
+        return singleFlight.run(key, keyed ? messageHash(message) : null, keyed, () -> runTurn(userId, message));
+    }
+
+    static String messageHash(String message) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(String.valueOf(message).getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to hash chat message: " + e.getMessage());
         }
+    }
+
+    private ChatSingleFlight.Outcome runTurn(UUID userId, String message) {
+        Deadline deadline = Deadline.after(Duration.ofMillis(deadlineMs));
+
+        ChatTurn turn = prepareTurn(userId, message);
 
-        String userPrompt = """
+        AiModelOutput json;
+        byte[] fresh = null;
+        long providerMs = 0;
+
+        try {
+            byte[] raw = cache.get(turn.cacheKey());
+
+            if (raw != null) {
+                json = parse(raw, "cache");
+            } else {
+                // Call AI provider (auto fallback)
+                long start = System.currentTimeMillis();
+                raw = router.generateRaw(userId, turn.systemPrompt(), turn.userPrompt(), deadline);
+
+                if (raw == null || raw.length == 0) {
+                    throw new RuntimeException("AI returned empty response");
+                }
+
+                json = parse(raw, "chat");
+                fresh = raw;
+                providerMs = System.currentTimeMillis() - start;
+            }
+
+        } catch (AiOverloadedException e) {
+            // overload is reported to the client (429 + Retry-After), not papered over
+            throw e;
+        } catch (Exception e) {
+
+            // 🔒 HARD SAFETY FALLBACK — NEVER BREAK JSON CONTRACT
+            return new ChatSingleFlight.Outcome(
+                    completeTurn(turn, hardFallback(e instanceof ParseFailure ? "parse" : "provider")), false);
+        }
+
+        // no reply = soft fallback ("warming up, retry"): not worth replaying either
+        boolean replayable = json.getReply() != null;
+        Map<String, Object> result = completeTurn(turn, json);
+
+        // Cache only a real answer whose reply passed validation: a soft fallback,
+        // or a reply naming universities outside its context, would otherwise be
+        // served to every identical prompt until the entry expires.
+        if (fresh != null && replayable && ((List<?>) result.get("unverifiedUniversities")).isEmpty()) {
+            cache.put(userId, turn.cacheKey(), fresh, providerMs);
+        }
+        return new ChatSingleFlight.Outcome(result, replayable);
+    }
+
+    /**
+     * Streaming variant of {@link #chat}: "token" events carry reply text as the
+     * provider generates it, and a final "done" event carries the authoritative
+     * reply, the executed actions and the refreshed snapshot. If the provider
+     * fails, stalls or runs past the deadline, an "error" event says so before
+     * "done" delivers the fallback reply.
+     */
+    public Flux<ServerSentEvent<Object>> chatStream(UUID userId, String message) {
+        Deadline deadline = Deadline.after(Duration.ofMillis(streamDeadlineMs));
+        ChatTurn turn = prepareTurn(userId, message);
+
+        ReplyStreamExtractor extractor = new ReplyStreamExtractor();
+        StringBuilder fullText = new StringBuilder();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Flux<ServerSentEvent<Object>> tokens = router.streamText(userId, turn.systemPrompt(), turn.userPrompt(), deadline)
+                .doOnNext(fullText::append)
+                .map(extractor::accept)
+                .filter(delta -> !delta.isEmpty())
+                .map(delta -> ServerSentEvent.<Object>builder(Map.of("text", delta)).event("token").build())
+                .onErrorResume(e -> {
+                    String reason = e instanceof TimeoutException ? "timeout"
+                            : e instanceof AiOverloadedException ? "overloaded" : "provider";
+                    failure.set(reason);
+                    Map<String, Object> body = e instanceof AiOverloadedException o
+                            ? Map.of("reason", reason, "retryAfterSeconds", o.getRetryAfterSeconds())
+                            : Map.of("reason", reason);
+                    return Flux.just(ServerSentEvent.<Object>builder(body).event("error").build());
+                });
+
+        // actions + snapshot hit the DB, keep them off the Netty event loop
+        Mono<ServerSentEvent<Object>> done = Mono.fromCallable(() -> {
+                    AiModelOutput json;
+                    if (failure.get() != null) {
+                        json = hardFallback(failure.get());
+                    } else {
+                        try {
+                            json = parser.parseText(fullText.toString());
+                        } catch (Exception e) {
+                            metrics.parseFailure("stream");
+                            json = hardFallback("parse");
+                        }
+                    }
+                    return completeTurn(turn, json);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(result -> ServerSentEvent.<Object>builder(result).event("done").build());
+
+        return tokens.concatWith(done);
+    }
+
+    static String userPrompt(String context, String message) {
+        return """
                 CONTEXT:
                 %s
 
                 USER_MESSAGE:
                 %s
-                """.formatted(context.toString(), message);
-
-        Map<String, Object> json;
+                """.formatted(context, message);
+    }
 
-        try {
-            // Call AI provider (auto fallback)
-            Map<String, Object> raw = router.generateRaw(systemPrompt, userPrompt);
+    private ChatTurn prepareTurn(UUID userId, String message) {
+        messageWriter.enqueue(userId, "user", message);
 
-            if (raw == null || raw.isEmpty()) {
-                throw new RuntimeException("AI returned empty response");
-            }
+        int stage = stageService.recalculateStage(userId);
+        UserProfile profile = profileService.getOrCreate(userId);
 
-            json = parser.extractJson(raw);
+        // strict gating
+        boolean onboardingComplete = profile.isOnboardingCompleted();
 
-        } catch (Exception e) {
+        String gating = onboardingComplete
+                ? "Onboarding complete. Recommend universities and take actions if helpful."
+                : "Onboarding incomplete. DO NOT recommend universities. Ask onboarding questions only.";
 
-            // 🔒 HARD SAFETY FALLBACK — NEVER BREAK JSON CONTRACT
-            json = Map.of(
-                "reply", "I’m warming up. Please click retry — your data is safe.",
-                "actions", List.of()
-            );
+        // IMPORTANT: limit available universities sent to model (avoid huge prompt);
+        // the encoder trims further if the context exceeds its token budget
+        List<UniversityDiscoverResponse> availableUnis = null;
+        List<UserUniversity> shortlist = null;
+        if (onboardingComplete) {
+            availableUnis = universityService.top(userId, 25);
+            shortlist = universityService.myShortlist(userId);
         }
 
+        String systemPrompt = SYSTEM_PROMPT;
+
+
+        EncodedContext context = contextEncoder.encode(
+                stage,
+                gating,
+                profile,
+                shortlist,
+                availableUnis
+        );
+
+        String userPrompt = userPrompt(context.text(), message);
 
-        String reply = json.get("reply") instanceof String
-                ? (String) json.get("reply")
-                : "I’m warming up. Please retry.";
+        return new ChatTurn(userId, onboardingComplete, systemPrompt, userPrompt,
+                context.aliases(), cache.key(systemPrompt, context.text(), message));
+    }
+
+    private Map<String, Object> completeTurn(ChatTurn turn, AiModelOutput json) {
+        UUID userId = turn.userId();
+        boolean onboardingComplete = turn.onboardingComplete();
+
+        String reply = json.getReply();
+        if (reply == null) {
+            metrics.chatFallback("soft", "no_reply");
+            reply = "I’m warming up. Please retry.";
+        }
 
-        AiMessage aiMsg = new AiMessage();
-        aiMsg.setUserId(userId);
-        aiMsg.setRole("assistant");
-        aiMsg.setContent(reply);
-        aiMsg.setCreatedAt(OffsetDateTime.now());
-        aiMessageRepo.save(aiMsg);
-        List<Map<String, Object>> actions = (List<Map<String, Object>>) json.getOrDefault("actions", List.of());
+        messageWriter.enqueue(userId, "assistant", reply);
+        List<String> unverified = unverifiedUniversities(reply, turn.aliases().values());
+        List<AiToolAction> actions = json.getActions() != null ? json.getActions() : List.of();
 
         // enforce gating
         if (!onboardingComplete && actions != null && !actions.isEmpty()) {
@@ -204,13 +358,14 @@ public class AiService {
         List<Map<String, Object>> executed = new ArrayList<>();
         int actionCount = 0;
 
-        for (Map<String, Object> a : actions) {
+        for (AiToolAction a : actions) {
             if (actionCount >= 3) break; // hard limit
             actionCount++;
 
             try {
-                String type = String.valueOf(a.get("type"));
-                Map<String, Object> args = (Map<String, Object>) a.getOrDefault("args", Map.of());
+                String type = String.valueOf(a.getType());
+                Map<String, Object> args = resolveAliases(
+                        a.getArgs() != null ? a.getArgs() : Map.of(), turn.aliases());
 
                 Map<String, Object> result = executeAction(userId, type, args);
                 executed.add(Map.of("type", type, "args", args, "result", result));
@@ -219,20 +374,78 @@ public class AiService {
             }
         }
 
-        // refresh snapshot
-        int newStage = stageService.recalculateStage(userId);
-
-        Map<String, Object> snapshot = Map.of(
-                "stage", newStage,
-                "profile", profileService.getOrCreate(userId),
-                "shortlist", universityService.myShortlist(userId),
-                "tasks", taskService.myTasks(userId)
-        );
+        // refresh snapshot; the actions above are already applied, so a failure here must not rerun the turn
+        Map<String, Object> snapshot;
+        try {
+            snapshot = Map.of(
+                    "stage", stageService.recalculateStage(userId),
+                    "profile", profileService.getOrCreate(userId),
+                    "shortlist", universityService.myShortlist(userId),
+                    "tasks", taskService.myTasks(userId)
+            );
+        } catch (RuntimeException e) {
+            throw new TurnAppliedException("Chat turn applied its actions but the snapshot failed: " + e.getMessage(), e);
+        }
 
         return Map.of(
                 "reply", reply,
                 "actions", executed,
-                "snapshot", snapshot
+                "snapshot", snapshot,
+                "unverifiedUniversities", unverified
+        );
+    }
+
+    // Catalog universities the reply names that were not in the prompt (shortlist or
+    // availableUniversitiesTop): the model is not allowed to bring up others.
+    private List<String> unverifiedUniversities(String reply, Collection<UUID> inContext) {
+        long start = System.nanoTime();
+        List<UniversityNameMatcher.Mention> mentions = nameMatcher.find(reply);
+
+        List<String> unverified = new ArrayList<>();
+        for (UniversityNameMatcher.Mention m : mentions) {
+            if (m.ids().stream().noneMatch(inContext::contains)) {
+                unverified.add(m.name());
+            }
+        }
+        metrics.replyValidated(mentions.size(), unverified.size(), System.nanoTime() - start);
+        if (!unverified.isEmpty()) {
+            log.debug("reply names universities outside its context: {}", unverified);
+        }
+        return unverified;
+    }
+
+    // The prompt refers to universities by short alias; map them back to real ids.
+    private Map<String, Object> resolveAliases(Map<String, Object> args, Map<String, UUID> aliases) {
+        Object id = args.get("universityId");
+        if (id == null || !aliases.containsKey(String.valueOf(id))) {
+            return args;
+        }
+        Map<String, Object> resolved = new LinkedHashMap<>(args);
+        resolved.put("universityId", aliases.get(String.valueOf(id)).toString());
+        return resolved;
+    }
+
+    // marks a model answer that arrived but did not honour the {reply, actions} contract
+    private static class ParseFailure extends RuntimeException {
+        ParseFailure(Throwable cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    private AiModelOutput parse(byte[] raw, String path) {
+        try {
+            return parser.parse(raw);
+        } catch (RuntimeException e) {
+            metrics.parseFailure(path);
+            throw new ParseFailure(e);
+        }
+    }
+
+    private AiModelOutput hardFallback(String reason) {
+        metrics.chatFallback("hard", reason);
+        return new AiModelOutput(
+            "I’m warming up. Please click retry — your data is safe.",
+            List.of()
         );
     }
 
@@ -293,9 +506,62 @@ public class AiService {
 
 
 
-public List<AiMessage> getHistory(UUID userId) {
-    return aiMessageRepo.findByUserIdOrderByCreatedAtAsc(userId);
-}
+    /**
+     * One page of chat history, newest first. {@code before} is the
+     * {@code nextCursor} of the previous page ("createdAt,id"); null for the
+     * latest page. {@code nextCursor} is null once there is nothing older.
+     */
+    public Map<String, Object> getHistory(UUID userId, String before, Integer limit) {
+        int size = Math.max(1, Math.min(limit != null ? limit : historyPageSize, historyMaxPageSize));
+
+        OffsetDateTime cursorAt = null;
+        UUID cursorId = null;
+        if (before != null && !before.isBlank()) {
+            int comma = before.lastIndexOf(',');
+            if (comma < 0) {
+                throw new InvalidCursorException("Invalid history cursor");
+            }
+            try {
+                cursorAt = OffsetDateTime.parse(before.substring(0, comma));
+                cursorId = UUID.fromString(before.substring(comma + 1));
+            } catch (RuntimeException e) {
+                throw new InvalidCursorException("Invalid history cursor");
+            }
+        }
+
+        // one extra row tells us whether an older page exists
+        List<AiMessageView> rows = cursorAt == null
+                ? aiMessageRepo.findLatest(userId, Limit.of(size + 1))
+                : aiMessageRepo.findBefore(userId, cursorAt, cursorId, Limit.of(size + 1));
+
+        // read-your-writes: rows still in the write-behind queue
+        List<AiMessageView> unsaved = messageWriter.pendingFor(userId);
+        if (!unsaved.isEmpty()) {
+            Map<UUID, AiMessageView> merged = new LinkedHashMap<>();
+            for (AiMessageView v : rows) merged.put(v.getId(), v);
+            AiMessageView cursor = cursorAt == null ? null : new AiMessageView(cursorId, null, null, cursorAt);
+            for (AiMessageView v : unsaved) {
+                if (cursor == null || AiMessageWriter.NEWEST_FIRST.compare(v, cursor) > 0) {
+                    merged.putIfAbsent(v.getId(), v);
+                }
+            }
+            rows = new ArrayList<>(merged.values());
+            rows.sort(AiMessageWriter.NEWEST_FIRST);
+        }
 
+        boolean more = rows.size() > size;
+        List<AiMessageView> items = more ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (more) {
+            AiMessageView last = items.get(items.size() - 1);
+            nextCursor = last.getCreatedAt().toInstant() + "," + last.getId();
+        }
+
+        Map<String, Object> out = new HashMap<>();
+        out.put("items", items);
+        out.put("nextCursor", nextCursor);
+        return out;
+    }
 
 }
@@ -0,0 +1,48 @@
+package com.aicounsellor.backend.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/internal")
+public class AiStatsController {
+
+    private final AiModelRouter router;
+    private final AiResponseCache cache;
+    private final ChatSingleFlight singleFlight;
+    private final AiMessageWriter messageWriter;
+    private final AiChatJobService jobs;
+
+    public AiStatsController(
+            AiModelRouter router,
+            AiResponseCache cache,
+            ChatSingleFlight singleFlight,
+            AiMessageWriter messageWriter,
+            AiChatJobService jobs
+    ) {
+        this.router = router;
+        this.cache = cache;
+        this.singleFlight = singleFlight;
+        this.messageWriter = messageWriter;
+        this.jobs = jobs;
+    }
+
+    @GetMapping("/ai-stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>(router.stats());
+        out.put("cache", cache.stats());
+        out.put("singleFlight", singleFlight.stats());
+        out.put("messageWriter", messageWriter.stats());
+        out.put("jobs", jobs.stats());
+        return out;
+    }
+
+    @GetMapping("/ai-health")
+    public Map<String, Object> health() {
+        return router.health();
+    }
+}
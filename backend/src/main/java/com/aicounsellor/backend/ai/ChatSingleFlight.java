@@ -0,0 +1,136 @@
+package com.aicounsellor.backend.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-flight execution of chat turns: concurrent calls with the same key
+ * share one computation and its result. Results of keys marked as
+ * idempotent are also kept for a while, so a retried request with the same
+ * Idempotency-Key gets the original answer instead of a second LLM call.
+ * Only outcomes the caller marks replayable are kept: a fallback answer
+ * ("please retry") must let the retry through. A key is bound to the hash
+ * of the request it was first used with; reusing it for a different
+ * request fails with {@link IdempotencyKeyReusedException}.
+ */
+@Component
+public class ChatSingleFlight {
+
+    @Value("${app.ai.idempotency.ttlSeconds:600}")
+    private long ttlSeconds;
+
+    @Value("${app.ai.idempotency.maxEntries:5000}")
+    private int maxEntries;
+
+    /** What a turn produced, and whether a retry may be answered with it. */
+    public record Outcome(Map<String, Object> result, boolean replayable) {}
+
+    private record Flight(CompletableFuture<Map<String, Object>> future, String requestHash) {}
+
+    private record Completed(Map<String, Object> result, String requestHash, long expiresAt) {}
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Completed> completed = new LinkedHashMap<>();
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+
+    /**
+     * @param requestHash identifies the request body behind {@code key}; null when the key is
+     *                    itself derived from the body
+     */
+    public Map<String, Object> run(String key, String requestHash, boolean remember, Supplier<Outcome> work) {
+        if (remember) {
+            Map<String, Object> done = completedResult(key, requestHash);
+            if (done != null) {
+                replayed.incrementAndGet();
+                return done;
+            }
+        }
+
+        Flight mine = new Flight(new CompletableFuture<>(), requestHash);
+        Flight existing = inFlight.putIfAbsent(key, mine);
+
+        if (existing != null) {
+            checkSameRequest(existing.requestHash(), requestHash);
+            coalesced.incrementAndGet();
+            return join(existing.future());
+        }
+
+        try {
+            // an earlier flight may have stored its result and left inFlight between our
+            // first look and the claim; it is stored before it leaves, so look again
+            Map<String, Object> done = remember ? completedResult(key, requestHash) : null;
+            if (done != null) {
+                replayed.incrementAndGet();
+                mine.future().complete(done);
+                return done;
+            }
+
+            executed.incrementAndGet();
+            Outcome outcome = work.get();
+            if (remember && outcome.replayable()) remember(key, requestHash, outcome.result());
+            mine.future().complete(outcome.result());
+            return outcome.result();
+        } catch (RuntimeException e) {
+            mine.future().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "executed", executed.get(),
+                "coalesced", coalesced.get(),
+                "replayed", replayed.get(),
+                "inFlight", inFlight.size()
+        );
+    }
+
+    private synchronized Map<String, Object> completedResult(String key, String requestHash) {
+        Completed c = completed.get(key);
+        if (c == null) return null;
+        if (c.expiresAt() < System.currentTimeMillis()) {
+            completed.remove(key);
+            return null;
+        }
+        checkSameRequest(c.requestHash(), requestHash);
+        return c.result();
+    }
+
+    private synchronized void remember(String key, String requestHash, Map<String, Object> result) {
+        completed.put(key, new Completed(result, requestHash, System.currentTimeMillis() + ttlSeconds * 1000));
+        var it = completed.entrySet().iterator();
+        while (completed.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static void checkSameRequest(String first, String now) {
+        if (!Objects.equals(first, now)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key was already used with a different request");
+        }
+    }
+
+    private Map<String, Object> join(CompletableFuture<Map<String, Object>> f) {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.aicounsellor.backend.ai;
+
+import java.time.Duration;
+
+/**
+ * Absolute time budget for one chat request. Created once per request and
+ * passed down, so every provider attempt only gets what is left of it.
+ */
+public final class Deadline {
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    public Duration remaining() {
+        long left = deadlineNanos - System.nanoTime();
+        return Duration.ofNanos(Math.max(0, left));
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+}
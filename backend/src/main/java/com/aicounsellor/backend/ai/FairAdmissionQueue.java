@@ -0,0 +1,163 @@
+package com.aicounsellor.backend.ai;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit for one provider with a bounded, per-user fair wait queue.
+ *
+ * Up to maxConcurrent calls run at once. Further callers wait in a queue of
+ * at most maxQueued entries (and maxQueuedPerUser per user); when a permit is
+ * released it is handed to the next user in round-robin order, so a user
+ * hammering retry only ever competes for their own turn. Callers that cannot
+ * queue, or wait longer than allowed, are rejected immediately.
+ *
+ * Uses a ReentrantLock rather than synchronized so waiting virtual threads
+ * unmount instead of pinning their carrier.
+ */
+class FairAdmissionQueue {
+
+    private static final class Waiter {
+        final Condition signal;
+        boolean granted = false;
+
+        Waiter(Condition signal) {
+            this.signal = signal;
+        }
+    }
+
+    private static final UUID ANONYMOUS = new UUID(0, 0);
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int maxQueuedPerUser;
+    private final long retryAfterBaseSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // insertion order is the round-robin order; a served user moves to the back
+    private final LinkedHashMap<UUID, ArrayDeque<Waiter>> waiting = new LinkedHashMap<>();
+
+    private int inUse = 0;
+    private int queued = 0;
+    private long admitted = 0;
+    private long rejected = 0;
+
+    FairAdmissionQueue(String name, int maxConcurrent, int maxQueued, int maxQueuedPerUser, long retryAfterBaseSeconds) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+        this.retryAfterBaseSeconds = retryAfterBaseSeconds;
+    }
+
+    void acquire(UUID userId, Duration maxWait) {
+        UUID user = userId == null ? ANONYMOUS : userId;
+
+        lock.lock();
+        try {
+            if (inUse < maxConcurrent && queued == 0) {
+                inUse++;
+                admitted++;
+                return;
+            }
+
+            ArrayDeque<Waiter> mine = waiting.get(user);
+            if (queued >= maxQueued || (mine != null && mine.size() >= maxQueuedPerUser)) {
+                rejected++;
+                throw overloaded("queue full");
+            }
+
+            Waiter w = new Waiter(lock.newCondition());
+            waiting.computeIfAbsent(user, u -> new ArrayDeque<>()).addLast(w);
+            queued++;
+
+            long nanos = maxWait.toNanos();
+            try {
+                while (!w.granted && nanos > 0) {
+                    nanos = w.signal.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!w.granted) {
+                dequeue(user, w);
+                rejected++;
+                throw overloaded("wait time exceeded");
+            }
+            admitted++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        lock.lock();
+        try {
+            Waiter next = nextRoundRobin();
+            if (next != null) {
+                // hand the permit over directly; inUse stays the same
+                next.granted = true;
+                next.signal.signal();
+            } else {
+                inUse--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Map<String, Object> snapshot() {
+        lock.lock();
+        try {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("inUse", inUse);
+            out.put("maxConcurrent", maxConcurrent);
+            out.put("queued", queued);
+            out.put("queuedUsers", waiting.size());
+            out.put("admitted", admitted);
+            out.put("rejected", rejected);
+            return out;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Waiter nextRoundRobin() {
+        Iterator<Map.Entry<UUID, ArrayDeque<Waiter>>> it = waiting.entrySet().iterator();
+        if (!it.hasNext()) return null;
+
+        Map.Entry<UUID, ArrayDeque<Waiter>> first = it.next();
+        it.remove();
+
+        ArrayDeque<Waiter> q = first.getValue();
+        Waiter w = q.pollFirst();
+        if (!q.isEmpty()) {
+            waiting.put(first.getKey(), q); // back of the line
+        }
+        queued--;
+        return w;
+    }
+
+    private void dequeue(UUID user, Waiter w) {
+        ArrayDeque<Waiter> q = waiting.get(user);
+        if (q != null && q.remove(w)) {
+            queued--;
+            if (q.isEmpty()) waiting.remove(user);
+        }
+    }
+
+    // scale the hint with how many callers are ahead per slot
+    private AiOverloadedException overloaded(String why) {
+        long retryAfter = retryAfterBaseSeconds * (1 + queued / Math.max(1, maxConcurrent));
+        return new AiOverloadedException("AI provider " + name + " is busy (" + why + ")", retryAfter);
+    }
+}
@@ -1,15 +1,26 @@
 package com.aicounsellor.backend.ai;
 
+import java.time.Duration;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import io.netty.channel.ChannelOption;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
 @Component
 public class GeminiClient implements LLMClient {
 
     private final WebClient webClient;
+    private final AiJsonParser parser;
 
     @Value("${app.gemini.apiKey}")
     private String apiKey;
@@ -17,9 +28,22 @@ public class GeminiClient implements LLMClient {
     @Value("${app.gemini.model:gemini-2.5-flash-lite}")
     private String model;
 
-    public GeminiClient() {
+    public GeminiClient(
+            AiJsonParser parser,
+            @Value("${app.gemini.connectTimeoutMs:3000}") int connectTimeoutMs,
+            @Value("${app.gemini.responseTimeoutMs:20000}") long responseTimeoutMs,
+            @Value("${app.gemini.baseUrl:https://generativelanguage.googleapis.com}") String baseUrl
+    ) {
+        this.parser = parser;
+
+        // a hung provider must not hold the caller forever: bound connect and read time
+        HttpClient http = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+
         this.webClient = WebClient.builder()
-                .baseUrl("https://generativelanguage.googleapis.com")
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(http))
                 .build();
     }
 
@@ -29,26 +53,61 @@ public class GeminiClient implements LLMClient {
     }
 
     @Override
-    public Map<String, Object> generateRaw(String systemPrompt, String userPrompt) {
+    public String wireFormat() {
+        return "gemini";
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public Mono<byte[]> generate(String systemPrompt, String userPrompt) {
         if (apiKey == null || apiKey.isBlank()) {
-            throw new RuntimeException("GEMINI_API_KEY is missing");
+            return Mono.error(new RuntimeException("GEMINI_API_KEY is missing"));
         }
 
         String url = "/v1beta/models/" + model + ":generateContent?key=" + apiKey;
 
-        Map<String, Object> body = Map.of(
+        return webClient.post()
+                .uri(url)
+                .bodyValue(body(systemPrompt, userPrompt))
+                .retrieve()
+                .bodyToMono(byte[].class);
+    }
+
+    @Override
+    public Flux<String> streamText(String systemPrompt, String userPrompt) {
+        requireApiKey();
+
+        // alt=sse makes Gemini emit one GenerateContentResponse per SSE event
+        String url = "/v1beta/models/" + model + ":streamGenerateContent?alt=sse&key=" + apiKey;
+
+        return webClient.post()
+                .uri(url)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(body(systemPrompt, userPrompt))
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .mapNotNull(ServerSentEvent::data)
+                .map(parser::extractStreamDelta)
+                .filter(t -> !t.isEmpty());
+    }
+
+    private Map<String, Object> body(String systemPrompt, String userPrompt) {
+        return Map.of(
                 "contents", new Object[]{
                         Map.of("role", "user", "parts", new Object[]{
                                 Map.of("text", systemPrompt + "\n\nUSER:\n" + userPrompt)
                         })
                 }
         );
+    }
 
-        return webClient.post()
-                .uri(url)
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .block();
+    private void requireApiKey() {
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new RuntimeException("GEMINI_API_KEY is missing");
+        }
     }
 }
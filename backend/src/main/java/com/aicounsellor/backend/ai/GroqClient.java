@@ -1,15 +1,26 @@
 package com.aicounsellor.backend.ai;
 
+import java.time.Duration;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import io.netty.channel.ChannelOption;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
 @Component
 public class GroqClient implements LLMClient {
 
     private final WebClient webClient;
+    private final AiJsonParser parser;
 
     @Value("${app.groq.apiKey}")
     private String apiKey;
@@ -17,9 +28,22 @@ public class GroqClient implements LLMClient {
     @Value("${app.groq.model:llama-3.1-8b-instant}")
     private String model;
 
-    public GroqClient() {
+    public GroqClient(
+            AiJsonParser parser,
+            @Value("${app.groq.connectTimeoutMs:3000}") int connectTimeoutMs,
+            @Value("${app.groq.responseTimeoutMs:20000}") long responseTimeoutMs,
+            @Value("${app.groq.baseUrl:https://api.groq.com/openai/v1}") String baseUrl
+    ) {
+        this.parser = parser;
+
+        // a hung provider must not hold the caller forever: bound connect and read time
+        HttpClient http = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+
         this.webClient = WebClient.builder()
-                .baseUrl("https://api.groq.com/openai/v1")
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(http))
                 .build();
     }
 
@@ -29,27 +53,63 @@ public class GroqClient implements LLMClient {
     }
 
     @Override
-    public Map<String, Object> generateRaw(String systemPrompt, String userPrompt) {
+    public String wireFormat() {
+        return "openai";
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public Mono<byte[]> generate(String systemPrompt, String userPrompt) {
         if (apiKey == null || apiKey.isBlank()) {
-            throw new RuntimeException("GROQ_API_KEY is missing");
+            return Mono.error(new RuntimeException("GROQ_API_KEY is missing"));
         }
 
-        Map<String, Object> body = Map.of(
+        return webClient.post()
+                .uri("/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .bodyValue(body(systemPrompt, userPrompt, false))
+                .retrieve()
+                .bodyToMono(byte[].class);
+    }
+
+    @Override
+    public Flux<String> streamText(String systemPrompt, String userPrompt) {
+        requireApiKey();
+
+        return webClient.post()
+                .uri("/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(body(systemPrompt, userPrompt, true))
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !"[DONE]".equals(data.trim()))
+                .map(parser::extractStreamDelta)
+                .filter(t -> !t.isEmpty());
+    }
+
+    private Map<String, Object> body(String systemPrompt, String userPrompt, boolean stream) {
+        return Map.of(
                 "model", model,
                 "messages", new Object[]{
                         Map.of("role", "system", "content", systemPrompt),
                         Map.of("role", "user", "content", userPrompt)
                 },
-                "temperature", 0.2
+                "temperature", 0.2,
+                "stream", stream
         );
+    }
 
-        return webClient.post()
-                .uri("/chat/completions")
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "application/json")
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .block();
+    private void requireApiKey() {
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new RuntimeException("GROQ_API_KEY is missing");
+        }
     }
 }
@@ -0,0 +1,9 @@
+package com.aicounsellor.backend.ai;
+
+/** An Idempotency-Key sent again with a different request body; surfaces as HTTP 422. */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
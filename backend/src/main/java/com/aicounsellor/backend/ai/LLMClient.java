@@ -1,8 +1,28 @@
 package com.aicounsellor.backend.ai;
 
-import java.util.Map;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface LLMClient {
-    Map<String, Object> generateRaw(String systemPrompt, String userPrompt);
+
+    // Lazy: nothing is sent until subscribed, and cancelling aborts the HTTP exchange.
+    // Raw response body bytes; AiJsonParser reads only the text path out of them.
+    Mono<byte[]> generate(String systemPrompt, String userPrompt);
+
+    default byte[] generateRaw(String systemPrompt, String userPrompt) {
+        return generate(systemPrompt, userPrompt).block();
+    }
+
+    // Emits the model's text output piece by piece as the provider streams it.
+    Flux<String> streamText(String systemPrompt, String userPrompt);
+
     String name();
+
+    // shape of the raw body: "gemini" or "openai" (chat completions); recordings are kept per format
+    String wireFormat();
+
+    // model id for metrics tags
+    default String model() {
+        return name();
+    }
 }
@@ -0,0 +1,40 @@
+package com.aicounsellor.backend.ai;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring buffer of recent call latencies, used to derive hedge
+ * delays from what a provider actually does rather than a guessed constant.
+ */
+class LatencyWindow {
+
+    private final long[] samples;
+    private int next = 0;
+    private int size = 0;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /** Latency at the given percentile (0-100), or -1 when there are no samples yet. */
+    long percentile(double p) {
+        long[] copy;
+        synchronized (this) {
+            if (size == 0) return -1;
+            copy = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(p / 100.0 * copy.length) - 1;
+        return copy[Math.max(0, Math.min(idx, copy.length - 1))];
+    }
+}
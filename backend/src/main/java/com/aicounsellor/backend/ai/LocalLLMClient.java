@@ -0,0 +1,355 @@
+package com.aicounsellor.backend.ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.aicounsellor.backend.ai.dto.AiModelOutput;
+import com.aicounsellor.backend.ai.dto.AiToolAction;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Offline stand-in for Gemini/Groq (app.ai.provider=local). Answers with
+ * schema-valid {reply, actions} JSON derived from the prompt CONTEXT, wrapped
+ * in a Gemini or OpenAI-compatible response body, after a latency drawn from
+ * the configured distribution. Error and truncation rates simulate a
+ * misbehaving provider; with a replay directory, bodies captured by
+ * {@link ResponseRecorder} in the requested wire format are served instead,
+ * and a directory with none in that format is an error.
+ *
+ * Draws come from a seeded generator advanced once per call, so the same
+ * seed and call sequence reproduce the same latencies and failures.
+ */
+@Component
+public class LocalLLMClient implements LLMClient {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalLLMClient.class);
+
+    // everything random about one call, decided before it starts
+    record Simulated(long latencyMs, boolean fail, boolean truncated, String text, byte[] replayed, int promptTokens) {}
+
+    private final AiJsonParser parser;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final String format;
+    private final long seed;
+    private final String distribution;
+    private final long latencyMs;
+    private final long minMs;
+    private final long maxMs;
+    private final double sigma;
+    private final double errorRate;
+    private final double truncateRate;
+    private final int streamChunkChars;
+    private final Path replayDir;
+
+    private final AtomicLong calls = new AtomicLong();
+    // wire format -> captures in it
+    private volatile Map<String, List<Path>> replayFiles;
+
+    public LocalLLMClient(
+            AiJsonParser parser,
+            @Value("${app.ai.local.format:gemini}") String format,
+            @Value("${app.ai.local.seed:42}") long seed,
+            @Value("${app.ai.local.latency.distribution:lognormal}") String distribution,
+            @Value("${app.ai.local.latency.ms:800}") long latencyMs,
+            @Value("${app.ai.local.latency.minMs:200}") long minMs,
+            @Value("${app.ai.local.latency.maxMs:4000}") long maxMs,
+            @Value("${app.ai.local.latency.sigma:0.5}") double sigma,
+            @Value("${app.ai.local.errorRate:0.0}") double errorRate,
+            @Value("${app.ai.local.truncateRate:0.0}") double truncateRate,
+            @Value("${app.ai.local.streamChunkChars:12}") int streamChunkChars,
+            @Value("${app.ai.local.replayDir:}") String replayDir
+    ) {
+        this.parser = parser;
+        this.format = format.toLowerCase(Locale.ROOT);
+        this.seed = seed;
+        this.distribution = distribution.toLowerCase(Locale.ROOT);
+        this.latencyMs = latencyMs;
+        this.minMs = minMs;
+        this.maxMs = maxMs;
+        this.sigma = sigma;
+        this.errorRate = errorRate;
+        this.truncateRate = truncateRate;
+        this.streamChunkChars = Math.max(1, streamChunkChars);
+        this.replayDir = replayDir == null || replayDir.isBlank() ? null : Path.of(replayDir);
+    }
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public String model() {
+        return "local-stub";
+    }
+
+    @Override
+    public String wireFormat() {
+        return format;
+    }
+
+    @Override
+    public Mono<byte[]> generate(String systemPrompt, String userPrompt) {
+        return Mono.defer(() -> {
+            Simulated s = simulate(systemPrompt, userPrompt, format);
+            return Mono.delay(Duration.ofMillis(s.latencyMs()))
+                    .then(s.fail()
+                            ? Mono.error(new RuntimeException("local: simulated provider error"))
+                            : Mono.fromCallable(() -> body(s, format)));
+        });
+    }
+
+    @Override
+    public Flux<String> streamText(String systemPrompt, String userPrompt) {
+        return Flux.defer(() -> textChunks(simulate(systemPrompt, userPrompt, format)));
+    }
+
+    Simulated simulate(String systemPrompt, String userPrompt, String wireFormat) {
+        SplittableRandom r = new SplittableRandom(seed + 0x9E3779B97F4A7C15L * calls.getAndIncrement());
+
+        long latency = sampleLatency(r);
+        boolean fail = r.nextDouble() < errorRate;
+        boolean truncated = !fail && r.nextDouble() < truncateRate;
+
+        byte[] replayed = replay(systemPrompt, userPrompt, wireFormat);
+        String text = replayed != null ? parser.extractText(replayed) : answer(userPrompt);
+
+        if (truncated && text.length() > 1) {
+            // what a max_tokens cut looks like: valid envelope, unterminated JSON inside
+            text = text.substring(0, 1 + r.nextInt(text.length() - 1));
+        }
+
+        int promptTokens = TokenEstimator.estimate(systemPrompt) + TokenEstimator.estimate(userPrompt);
+        return new Simulated(latency, fail, truncated, text, truncated ? null : replayed, promptTokens);
+    }
+
+    // Time to first chunk is ~30% of the sampled latency, the rest is spread over the chunks.
+    Flux<String> textChunks(Simulated s) {
+        if (s.fail()) {
+            return Mono.delay(Duration.ofMillis(s.latencyMs()))
+                    .then(Mono.<String>error(new RuntimeException("local: simulated provider error")))
+                    .flux();
+        }
+
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < s.text().length(); i += streamChunkChars) {
+            chunks.add(s.text().substring(i, Math.min(s.text().length(), i + streamChunkChars)));
+        }
+
+        long firstMs = s.latencyMs() * 3 / 10;
+        long gapMs = chunks.isEmpty() ? 0 : (s.latencyMs() - firstMs) / chunks.size();
+
+        return Mono.delay(Duration.ofMillis(firstMs))
+                .thenMany(Flux.fromIterable(chunks).delayElements(Duration.ofMillis(gapMs)));
+    }
+
+    byte[] body(Simulated s, String wireFormat) {
+        if (s.replayed() != null) {
+            return s.replayed();
+        }
+
+        int completionTokens = TokenEstimator.estimate(s.text());
+        Map<String, Object> body = "openai".equals(wireFormat)
+                ? Map.of(
+                        "id", "chatcmpl-local-" + calls.get(),
+                        "object", "chat.completion",
+                        "created", System.currentTimeMillis() / 1000,
+                        "model", "local-stub",
+                        "choices", List.of(Map.of(
+                                "index", 0,
+                                "message", Map.of("role", "assistant", "content", s.text()),
+                                "finish_reason", s.truncated() ? "length" : "stop")),
+                        "usage", Map.of(
+                                "prompt_tokens", s.promptTokens(),
+                                "completion_tokens", completionTokens,
+                                "total_tokens", s.promptTokens() + completionTokens))
+                : Map.of(
+                        "candidates", List.of(Map.of(
+                                "content", Map.of("parts", List.of(Map.of("text", s.text())), "role", "model"),
+                                "finishReason", s.truncated() ? "MAX_TOKENS" : "STOP")),
+                        "usageMetadata", Map.of(
+                                "promptTokenCount", s.promptTokens(),
+                                "candidatesTokenCount", completionTokens,
+                                "totalTokenCount", s.promptTokens() + completionTokens),
+                        "modelVersion", "local-stub");
+        return write(body);
+    }
+
+    // one SSE data payload of a streamed answer, in the provider's chunk shape
+    byte[] streamChunk(String text, String wireFormat) {
+        Map<String, Object> chunk = "openai".equals(wireFormat)
+                ? Map.of("object", "chat.completion.chunk", "model", "local-stub",
+                        "choices", List.of(Map.of("index", 0, "delta", Map.of("content", text))))
+                : Map.of("candidates", List.of(Map.of(
+                        "content", Map.of("parts", List.of(Map.of("text", text)), "role", "model"))));
+        return write(chunk);
+    }
+
+    private long sampleLatency(SplittableRandom r) {
+        return switch (distribution) {
+            case "fixed" -> latencyMs;
+            case "uniform" -> minMs + (maxMs > minMs ? r.nextLong(maxMs - minMs + 1) : 0);
+            // heavy right tail like real providers: median latencyMs, spread sigma
+            case "lognormal" -> Math.min(maxMs, Math.round(latencyMs * Math.exp(sigma * r.nextGaussian())));
+            default -> throw new RuntimeException("Unknown app.ai.local.latency.distribution: " + distribution);
+        };
+    }
+
+    /**
+     * Plays the counsellor by the prompt's rules: only universities from the
+     * CONTEXT, aliases as ids, no actions before onboarding. Keywords in the
+     * user message decide whether an action is taken.
+     */
+    private String answer(String userPrompt) {
+        JsonNode ctx = context(userPrompt);
+        String message = userMessage(userPrompt).toLowerCase(Locale.ROOT);
+
+        int stage = ctx.path("st").asInt(1);
+        boolean onboarded = ctx.path("p").path("onb").asBoolean(false);
+        JsonNode available = ctx.path("av");
+        JsonNode shortlist = ctx.path("sl");
+
+        String reply;
+        List<AiToolAction> actions = new ArrayList<>();
+
+        if (!onboarded) {
+            reply = "Let's finish your profile first. Which degree are you aiming for, "
+                    + "which countries are you considering and what is your yearly budget in USD?";
+        } else if (stage <= 2) {
+            if (available.isEmpty()) {
+                reply = "I couldn't find universities within your budget and preferred countries yet. "
+                        + "Try adding another country or raising the budget.";
+            } else {
+                List<String> picks = new ArrayList<>();
+                for (int i = 0; i < Math.min(3, available.size()); i++) {
+                    JsonNode u = available.get(i);
+                    picks.add(u.path("n").asText() + " (" + u.path("b").asText() + ")");
+                }
+                reply = "Based on your profile, good options are " + String.join(", ", picks) + ".";
+                if (message.contains("shortlist")) {
+                    JsonNode top = available.get(0);
+                    actions.add(action("shortlist", Map.of("universityId", top.path("id").asText())));
+                    reply += " I shortlisted " + top.path("n").asText() + " for you.";
+                }
+            }
+        } else if (stage == 3) {
+            reply = "You have " + shortlist.size() + " universities shortlisted. "
+                    + "Lock at least one so we can start your application tasks.";
+            if (message.contains("lock")) {
+                actions.add(action("lock_recent_shortlisted", Map.of()));
+                reply = "I locked your most recently shortlisted university. Application tasks are unlocked.";
+            }
+        } else {
+            reply = "Your application is underway. Focus on your SOP and exam readiness next.";
+            if (message.contains("task")) {
+                actions.add(action("create_task", Map.of("title", "Finalize SOP draft")));
+                reply += " I added a task to finalize your SOP draft.";
+            }
+        }
+
+        try {
+            return mapper.writeValueAsString(new AiModelOutput(reply, actions));
+        } catch (Exception e) {
+            throw new RuntimeException("local: failed to build answer: " + e.getMessage());
+        }
+    }
+
+    private JsonNode context(String userPrompt) {
+        int start = userPrompt.indexOf("CONTEXT:");
+        int end = userPrompt.indexOf("USER_MESSAGE:");
+        if (start < 0 || end < start) return mapper.createObjectNode();
+        try {
+            return mapper.readTree(userPrompt.substring(start + "CONTEXT:".length(), end));
+        } catch (Exception e) {
+            return mapper.createObjectNode();
+        }
+    }
+
+    private String userMessage(String userPrompt) {
+        int at = userPrompt.indexOf("USER_MESSAGE:");
+        return at < 0 ? userPrompt : userPrompt.substring(at + "USER_MESSAGE:".length()).trim();
+    }
+
+    private AiToolAction action(String type, Map<String, Object> args) {
+        AiToolAction a = new AiToolAction();
+        a.setType(type);
+        a.setArgs(args);
+        return a;
+    }
+
+    // Exact prompt match first; otherwise any capture, picked by prompt hash. Only
+    // captures in the requested format qualify: a Gemini body handed to the
+    // OpenAI-compatible client would fail far from the cause.
+    private byte[] replay(String systemPrompt, String userPrompt, String wireFormat) {
+        if (replayDir == null) return null;
+
+        Map<String, List<Path>> byFormat = replayFiles();
+        if (byFormat.isEmpty()) return null;
+        List<Path> files = byFormat.get(wireFormat);
+        if (files == null) {
+            throw new RuntimeException("local: no " + wireFormat + " recordings in " + replayDir
+                    + " (found " + String.join(", ", byFormat.keySet()) + ")");
+        }
+
+        String hash = ResponseRecorder.promptHash(systemPrompt, userPrompt);
+        Path pick = files.stream()
+                .filter(f -> f.getFileName().toString().startsWith(hash + "."))
+                .findFirst()
+                .orElse(files.get(Math.floorMod(hash.hashCode(), files.size())));
+        try {
+            return Files.readAllBytes(pick);
+        } catch (IOException e) {
+            throw new RuntimeException("local: failed to read replay " + pick + ": " + e.getMessage());
+        }
+    }
+
+    private Map<String, List<Path>> replayFiles() {
+        Map<String, List<Path>> files = replayFiles;
+        if (files == null) {
+            try (Stream<Path> s = Files.list(replayDir)) {
+                files = new TreeMap<>();
+                for (Path f : s.filter(f -> f.toString().endsWith(".json")).sorted().toList()) {
+                    String wireFormat = ResponseRecorder.wireFormatOf(f);
+                    if (wireFormat == null) {
+                        log.warn("local replay {} skipped: wire format unknown", f.getFileName());
+                        continue;
+                    }
+                    files.computeIfAbsent(wireFormat, k -> new ArrayList<>()).add(f);
+                }
+            } catch (IOException e) {
+                log.warn("local replay dir unreadable: {}", e.getMessage());
+                files = Map.of();
+            }
+            replayFiles = files;
+        }
+        return files;
+    }
+
+    private byte[] write(Object body) {
+        try {
+            return mapper.writeValueAsBytes(body);
+        } catch (Exception e) {
+            throw new RuntimeException("local: failed to write body: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.aicounsellor.backend.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * HTTP face of {@link LocalLLMClient}, speaking the Gemini and
+ * OpenAI-compatible wire formats so the real clients (timeouts, SSE parsing,
+ * hedging) can be load-tested without provider quota. Point them here with
+ *   GEMINI_BASE_URL=http://localhost:8080/internal/llm-stub
+ *   GROQ_BASE_URL=http://localhost:8080/internal/llm-stub/openai/v1
+ * and any non-empty API key. Only registered when app.ai.local.stub.enabled=true.
+ */
+@RestController
+@RequestMapping("/internal/llm-stub")
+@ConditionalOnProperty(name = "app.ai.local.stub.enabled", havingValue = "true")
+public class LocalLLMStubController {
+
+    private static final byte[] OVERLOADED =
+            "{\"error\":{\"code\":503,\"message\":\"simulated overload\"}}".getBytes(StandardCharsets.UTF_8);
+
+    private final LocalLLMClient local;
+
+    public LocalLLMStubController(LocalLLMClient local) {
+        this.local = local;
+    }
+
+    // "{model}:generateContent" or "{model}:streamGenerateContent" (alt=sse)
+    @SuppressWarnings("unchecked")
+    @PostMapping("/v1beta/models/{call}")
+    public ResponseEntity<ResponseBodyEmitter> gemini(@PathVariable String call, @RequestBody Map<String, Object> body) {
+        var contents = (List<Map<String, Object>>) body.get("contents");
+        var parts = (List<Map<String, Object>>) contents.get(0).get("parts");
+        String text = String.valueOf(parts.get(0).get("text"));
+
+        // GeminiClient sends "<system>\n\nUSER:\n<user>" as one part
+        int at = text.indexOf("\n\nUSER:\n");
+        String systemPrompt = at < 0 ? "" : text.substring(0, at);
+        String userPrompt = at < 0 ? text : text.substring(at + "\n\nUSER:\n".length());
+
+        return respond(systemPrompt, userPrompt, "gemini", call.endsWith(":streamGenerateContent"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @PostMapping("/openai/v1/chat/completions")
+    public ResponseEntity<ResponseBodyEmitter> openAi(@RequestBody Map<String, Object> body) {
+        String systemPrompt = "";
+        String userPrompt = "";
+        for (Map<String, Object> m : (List<Map<String, Object>>) body.get("messages")) {
+            if ("system".equals(m.get("role"))) systemPrompt = String.valueOf(m.get("content"));
+            if ("user".equals(m.get("role"))) userPrompt = String.valueOf(m.get("content"));
+        }
+
+        return respond(systemPrompt, userPrompt, "openai", Boolean.TRUE.equals(body.get("stream")));
+    }
+
+    // Nothing is written until the sampled latency has passed, so even the status
+    // line (503 for simulated failures) arrives as late as a real provider's would.
+    private ResponseEntity<ResponseBodyEmitter> respond(String systemPrompt, String userPrompt, String format, boolean stream) {
+        LocalLLMClient.Simulated s = local.simulate(systemPrompt, userPrompt, format);
+
+        if (s.fail() || !stream) {
+            ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+            byte[] out = s.fail() ? OVERLOADED : local.body(s, format);
+            Disposable d = Mono.delay(Duration.ofMillis(s.latencyMs())).subscribe(x -> {
+                try {
+                    emitter.send(out, MediaType.APPLICATION_JSON);
+                    emitter.complete();
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                }
+            });
+            emitter.onError(e -> d.dispose());
+            return ResponseEntity.status(s.fail() ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(emitter);
+        }
+
+        SseEmitter sse = new SseEmitter();
+        Flux<String> data = local.textChunks(s).map(t -> new String(local.streamChunk(t, format), StandardCharsets.UTF_8));
+        if ("openai".equals(format)) {
+            data = data.concatWith(Mono.just("[DONE]"));
+        }
+        Disposable d = data.subscribe(
+                chunk -> {
+                    try {
+                        sse.send(SseEmitter.event().data(chunk));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                },
+                sse::completeWithError,
+                sse::complete
+        );
+        // client went away: stop producing
+        sse.onError(e -> d.dispose());
+        sse.onTimeout(d::dispose);
+        return ResponseEntity.ok().body(sse);
+    }
+}
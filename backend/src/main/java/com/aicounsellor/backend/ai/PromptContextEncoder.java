@@ -0,0 +1,156 @@
+package com.aicounsellor.backend.ai;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.aicounsellor.backend.profile.UserProfile;
+import com.aicounsellor.backend.universities.UserUniversity;
+import com.aicounsellor.backend.universities.dto.UniversityDiscoverResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Builds the CONTEXT block of the chat prompt.
+ *
+ * Output is compact JSON with abbreviated keys (see {@link #LEGEND}), no nulls
+ * and short university aliases ("u1", "u2", ...) instead of UUIDs. The aliases
+ * are returned alongside the text so actions can be mapped back. If the
+ * estimated size exceeds the token budget, the lowest ranked available
+ * universities are dropped first; profile and shortlist are always kept.
+ */
+@Component
+public class PromptContextEncoder {
+
+    /** Goes into the system prompt so the model can read the abbreviated keys. */
+    public static final String LEGEND = """
+            CONTEXT KEYS:
+            st=stage, g=gating, p=profile, sl=shortlist, av=availableUniversitiesTop (best first)
+            profile: edu=educationLevel, maj=major, grad=gradYear, deg=intendedDegree, fld=fieldOfStudy,
+              intake=intakeYear, ctry=preferredCountries, bud=budgetPerYear (USD), fund=fundingPlan, onb=onboardingCompleted
+            university: id=universityId, n=name, c=country, cost=yearlyCostUsd, b=bucket, a=acceptanceChance, r=risk, s=status
+            """;
+
+    public record EncodedContext(String text, Map<String, UUID> aliases, int estimatedTokens) {}
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private final int tokenBudget;
+
+    public PromptContextEncoder(@Value("${app.ai.context.tokenBudget:1200}") int tokenBudget) {
+        this.tokenBudget = tokenBudget;
+    }
+
+    public EncodedContext encode(
+            int stage,
+            String gating,
+            UserProfile profile,
+            List<UserUniversity> shortlist,
+            List<UniversityDiscoverResponse> available
+    ) {
+        Map<UUID, String> aliasOf = new HashMap<>();
+        Map<String, UUID> aliases = new LinkedHashMap<>();
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("st", stage);
+        root.put("g", gating);
+        root.put("p", profile(profile));
+
+        List<Map<String, Object>> sl = new ArrayList<>();
+        if (shortlist != null) {
+            for (UserUniversity uu : shortlist) {
+                var u = uu.getUniversity();
+                if (u == null) continue;
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("id", alias(u.getId(), aliasOf, aliases));
+                m.put("n", u.getName());
+                m.put("c", u.getCountry());
+                m.put("s", uu.getStatus());
+                sl.add(m);
+            }
+            root.put("sl", sl);
+        }
+
+        List<Map<String, Object>> av = new ArrayList<>();
+        if (available != null) {
+            for (UniversityDiscoverResponse u : available) {
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("id", alias(u.getId(), aliasOf, aliases));
+                m.put("n", u.getName());
+                m.put("c", u.getCountry());
+                m.put("cost", u.getYearlyCostUsd());
+                m.put("b", u.getBucket());
+                m.put("a", u.getAcceptanceChance());
+                m.put("r", u.getRisk());
+                av.add(m);
+            }
+            root.put("av", av);
+        }
+
+        String text = write(root);
+        int tokens = TokenEstimator.estimate(text);
+
+        // over budget: drop the lowest ranked available universities, keep everything else
+        if (tokens > tokenBudget) {
+            int over = tokens - tokenBudget;
+            while (over > 0 && !av.isEmpty()) {
+                over -= TokenEstimator.estimate(write(av.remove(av.size() - 1))) + 1;
+            }
+            text = write(root);
+            tokens = TokenEstimator.estimate(text);
+        }
+
+        // only aliases still present in the prompt can legitimately come back in actions
+        Map<String, UUID> used = new LinkedHashMap<>();
+        for (List<Map<String, Object>> list : List.of(sl, av)) {
+            for (Map<String, Object> m : list) {
+                String a = String.valueOf(m.get("id"));
+                used.put(a, aliases.get(a));
+            }
+        }
+
+        return new EncodedContext(text, used, tokens);
+    }
+
+    private Map<String, Object> profile(UserProfile p) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("edu", p.getEducationLevel());
+        m.put("maj", p.getMajor());
+        m.put("grad", p.getGradYear());
+        m.put("gpa", p.getGpa());
+        m.put("deg", p.getIntendedDegree());
+        m.put("fld", p.getFieldOfStudy());
+        m.put("intake", p.getIntakeYear());
+        m.put("ctry", p.getPreferredCountries());
+        m.put("bud", p.getBudgetPerYear());
+        m.put("fund", p.getFundingPlan());
+        m.put("ielts", p.getIeltsStatus());
+        m.put("gre", p.getGreStatus());
+        m.put("sop", p.getSopStatus());
+        m.put("onb", p.isOnboardingCompleted());
+        return m;
+    }
+
+    private String alias(UUID id, Map<UUID, String> aliasOf, Map<String, UUID> aliases) {
+        return aliasOf.computeIfAbsent(id, k -> {
+            String a = "u" + (aliasOf.size() + 1);
+            aliases.put(a, k);
+            return a;
+        });
+    }
+
+    private String write(Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to encode AI context: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.aicounsellor.backend.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker state for one LLM provider.
+ *
+ * CLOSED: calls flow, outcomes go into a rolling window. Once the window has
+ * enough calls and the error rate crosses the threshold the circuit OPENs and
+ * calls are skipped. After the cool-down a single HALF_OPEN probe is let
+ * through; success closes the circuit again, failure re-opens it.
+ */
+class ProviderHealth {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderHealth.class);
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final boolean[] failures;
+    private final int minCalls;
+    private final double errorRateThreshold;
+    private final long openMillis;
+    private final double ewmaAlpha;
+
+    private int next = 0;
+    private int size = 0;
+    private int failureCount = 0;
+
+    private double ewmaLatencyMs = -1;
+    private State state = State.CLOSED;
+    private long openedAt = 0;
+    private boolean probeInFlight = false;
+    private long probeStartedAt = 0;
+
+    ProviderHealth(String name, int windowSize, int minCalls, double errorRateThreshold, long openMillis, double ewmaAlpha) {
+        this.name = name;
+        this.failures = new boolean[windowSize];
+        this.minCalls = minCalls;
+        this.errorRateThreshold = errorRateThreshold;
+        this.openMillis = openMillis;
+        this.ewmaAlpha = ewmaAlpha;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /** Whether a call may go to this provider right now; may start a half-open probe. */
+    synchronized boolean allowRequest() {
+        if (state == State.CLOSED) return true;
+
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+
+        // a probe that never reported back (not called after all, or its outcome
+        // was never observed) must not block probing forever
+        long now = System.currentTimeMillis();
+        if (state == State.HALF_OPEN && (!probeInFlight || now - probeStartedAt >= openMillis)) {
+            probeInFlight = true;
+            probeStartedAt = now;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Whether {@link #allowRequest()} would let a call through, without
+     * starting a probe: for choosing candidates before any is called.
+     */
+    synchronized boolean mayAllow() {
+        long now = System.currentTimeMillis();
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> now - openedAt >= openMillis;
+            case HALF_OPEN -> !probeInFlight || now - probeStartedAt >= openMillis;
+        };
+    }
+
+    synchronized void recordSuccess(long latencyMs) {
+        updateLatency(latencyMs);
+        succeeded();
+    }
+
+    /** A success whose duration is not comparable to a plain call (a finished stream). */
+    synchronized void recordSuccess() {
+        succeeded();
+    }
+
+    // Failures leave the latency alone: a provider that fails fast is not a fast provider.
+    synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        push(true);
+
+        if (state == State.CLOSED && size >= minCalls && errorRate() >= errorRateThreshold) {
+            open();
+        }
+    }
+
+    // A probe that was cancelled (e.g. lost a hedge race) proved nothing; let the next call probe.
+    synchronized void recordCancelled() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    // CLOSED < HALF_OPEN < OPEN, used for fallback ordering
+    synchronized int stateRank() {
+        return switch (state) {
+            case CLOSED -> 0;
+            case HALF_OPEN -> 1;
+            case OPEN -> 2;
+        };
+    }
+
+    /** EWMA latency of successful calls, or 0 when there is none yet. */
+    synchronized double ewmaLatencyMs() {
+        return ewmaLatencyMs < 0 ? 0 : ewmaLatencyMs;
+    }
+
+    /**
+     * Expected time to a successful answer: the success latency stretched by
+     * the recent error rate (1 / (1 - rate) tries on average). A provider that
+     * has never been called scores 0 so it gets tried; one that has only
+     * failed scores last.
+     */
+    synchronized double rankScore() {
+        if (ewmaLatencyMs < 0) return failureCount > 0 ? Double.MAX_VALUE : 0;
+        double rate = size == 0 ? 0 : errorRate();
+        return ewmaLatencyMs / Math.max(1 - rate, 0.05);
+    }
+
+    synchronized Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("state", state.name());
+        out.put("errorRate", size == 0 ? 0.0 : errorRate());
+        out.put("calls", size);
+        out.put("ewmaLatencyMs", Math.round(ewmaLatencyMs()));
+        if (state != State.CLOSED) {
+            out.put("openedAt", openedAt);
+        }
+        return out;
+    }
+
+    private double errorRate() {
+        return (double) failureCount / size;
+    }
+
+    private void updateLatency(long latencyMs) {
+        ewmaLatencyMs = ewmaLatencyMs < 0
+                ? latencyMs
+                : ewmaAlpha * latencyMs + (1 - ewmaAlpha) * ewmaLatencyMs;
+    }
+
+    private void succeeded() {
+        if (state == State.HALF_OPEN) {
+            close();
+            return;
+        }
+        push(false);
+    }
+
+    private void push(boolean failed) {
+        if (size == failures.length) {
+            if (failures[next]) failureCount--;
+        } else {
+            size++;
+        }
+        failures[next] = failed;
+        if (failed) failureCount++;
+        next = (next + 1) % failures.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        probeInFlight = false;
+        log.info("circuit opened for provider {}", name);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        probeInFlight = false;
+        next = 0;
+        size = 0;
+        failureCount = 0;
+        log.info("circuit closed for provider {}", name);
+    }
+}
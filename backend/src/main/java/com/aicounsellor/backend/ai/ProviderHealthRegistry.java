@@ -0,0 +1,84 @@
+package com.aicounsellor.backend.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ProviderHealthRegistry {
+
+    @Value("${app.ai.health.windowSize:20}")
+    private int windowSize;
+
+    @Value("${app.ai.health.minCalls:5}")
+    private int minCalls;
+
+    @Value("${app.ai.health.errorRateThreshold:0.5}")
+    private double errorRateThreshold;
+
+    @Value("${app.ai.health.openMillis:30000}")
+    private long openMillis;
+
+    @Value("${app.ai.health.ewmaAlpha:0.2}")
+    private double ewmaAlpha;
+
+    private final Map<String, ProviderHealth> health = new ConcurrentHashMap<>();
+
+    /** Claims the half-open probe slot when there is one: call only right before dispatching. */
+    public boolean allowRequest(LLMClient client) {
+        return of(client).allowRequest();
+    }
+
+    public boolean mayAllow(LLMClient client) {
+        return of(client).mayAllow();
+    }
+
+    public void recordSuccess(LLMClient client, long latencyMs) {
+        of(client).recordSuccess(latencyMs);
+    }
+
+    public void recordSuccess(LLMClient client) {
+        of(client).recordSuccess();
+    }
+
+    public void recordFailure(LLMClient client) {
+        of(client).recordFailure();
+    }
+
+    public void recordCancelled(LLMClient client) {
+        of(client).recordCancelled();
+    }
+
+    /**
+     * Healthy providers first, then half-open, then open; within a state the
+     * lowest expected time to a successful answer first (success latency
+     * penalised by the error rate). The sort is stable, so the configured
+     * order breaks ties.
+     */
+    public List<LLMClient> rank(List<LLMClient> clients) {
+        List<LLMClient> out = new ArrayList<>(clients);
+        out.sort(Comparator
+                .comparingInt((LLMClient c) -> of(c).stateRank())
+                .thenComparingDouble(c -> of(c).rankScore()));
+        return out;
+    }
+
+    public Map<String, Object> snapshot(List<LLMClient> clients) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (LLMClient c : clients) {
+            out.put(c.name(), of(c).snapshot());
+        }
+        return out;
+    }
+
+    private ProviderHealth of(LLMClient client) {
+        return health.computeIfAbsent(client.name(),
+                n -> new ProviderHealth(n, windowSize, minCalls, errorRateThreshold, openMillis, ewmaAlpha));
+    }
+}
@@ -0,0 +1,126 @@
+package com.aicounsellor.backend.ai;
+
+/**
+ * Pulls the top-level "reply" string out of the model's JSON output while it
+ * is still arriving in arbitrary chunks, so the text can be forwarded to the
+ * client before the whole object (and its actions) has been generated.
+ *
+ * Not thread-safe: one instance per stream.
+ */
+class ReplyStreamExtractor {
+
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escape = false;
+    private final StringBuilder token = new StringBuilder();
+
+    private boolean afterReplyKey = false; // saw "reply", waiting for ':'
+    private boolean expectValue = false;   // saw ':', waiting for opening quote
+    private boolean inReply = false;
+    private boolean done = false;
+
+    private final StringBuilder unicode = new StringBuilder();
+    private boolean inUnicode = false;
+
+    /** Returns the decoded reply characters contained in this chunk (possibly empty). */
+    String accept(String chunk) {
+        if (done || chunk == null || chunk.isEmpty()) return "";
+
+        StringBuilder out = new StringBuilder();
+
+        for (int i = 0; i < chunk.length() && !done; i++) {
+            char ch = chunk.charAt(i);
+
+            if (inReply) {
+                readReplyChar(ch, out);
+                continue;
+            }
+
+            if (inString) {
+                if (escape) {
+                    escape = false;
+                    token.append(ch);
+                } else if (ch == '\\') {
+                    escape = true;
+                } else if (ch == '"') {
+                    inString = false;
+                    afterReplyKey = depth == 1 && "reply".contentEquals(token);
+                } else {
+                    token.append(ch);
+                }
+                continue;
+            }
+
+            if (Character.isWhitespace(ch)) continue;
+
+            if (expectValue) {
+                expectValue = false;
+                if (ch == '"') {
+                    inReply = true;
+                    continue;
+                }
+                done = true; // reply is not a string, nothing to stream
+                continue;
+            }
+
+            if (afterReplyKey) {
+                afterReplyKey = false;
+                if (ch == ':') {
+                    expectValue = true;
+                    continue;
+                }
+            }
+
+            switch (ch) {
+                case '"' -> {
+                    inString = true;
+                    token.setLength(0);
+                }
+                case '{', '[' -> depth++;
+                case '}', ']' -> depth--;
+                default -> { }
+            }
+        }
+
+        return out.toString();
+    }
+
+    private void readReplyChar(char ch, StringBuilder out) {
+        if (inUnicode) {
+            unicode.append(ch);
+            if (unicode.length() == 4) {
+                inUnicode = false;
+                try {
+                    out.append((char) Integer.parseInt(unicode.toString(), 16));
+                } catch (NumberFormatException e) {
+                    // malformed escape; drop it, the final parse decides
+                }
+                unicode.setLength(0);
+            }
+            return;
+        }
+
+        if (escape) {
+            escape = false;
+            switch (ch) {
+                case 'n' -> out.append('\n');
+                case 't' -> out.append('\t');
+                case 'r' -> out.append('\r');
+                case 'b' -> out.append('\b');
+                case 'f' -> out.append('\f');
+                case 'u' -> inUnicode = true;
+                default -> out.append(ch); // \" \\ \/
+            }
+            return;
+        }
+
+        if (ch == '\\') {
+            escape = true;
+        } else if (ch == '"') {
+            inReply = false;
+            done = true;
+        } else {
+            out.append(ch);
+        }
+    }
+}
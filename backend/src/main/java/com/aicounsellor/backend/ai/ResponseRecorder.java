@@ -0,0 +1,76 @@
+package com.aicounsellor.backend.ai;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Captures raw provider response bodies to {@code app.ai.record.dir} as
+ * {@code <promptHash>.<provider>.<wireFormat>.json}, so LocalLLMClient can
+ * replay real answers offline in the format they were recorded in. Disabled
+ * when the directory is not set.
+ */
+@Component
+public class ResponseRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseRecorder.class);
+
+    private final Path dir;
+
+    public ResponseRecorder(@Value("${app.ai.record.dir:}") String dir) {
+        this.dir = dir == null || dir.isBlank() ? null : Path.of(dir);
+    }
+
+    public boolean isEnabled() {
+        return dir != null;
+    }
+
+    public void record(String provider, String wireFormat, String systemPrompt, String userPrompt, byte[] body) {
+        if (dir == null) return;
+        try {
+            Files.createDirectories(dir);
+            Files.write(dir.resolve(promptHash(systemPrompt, userPrompt) + "." + provider + "." + wireFormat + ".json"), body);
+        } catch (IOException e) {
+            // recording is a test aid; never fail the chat over it
+            log.warn("recording AI response failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Wire format of a recording named by {@link #record}; captures from before
+     * the format was part of the name are known by their provider. Null when
+     * neither tells.
+     */
+    static String wireFormatOf(Path file) {
+        String[] parts = file.getFileName().toString().split("\\.");
+        if (parts.length == 4) return parts[2];
+        if (parts.length == 3) {
+            return switch (parts[1]) {
+                case "gemini" -> "gemini";
+                case "groq" -> "openai";
+                default -> null;
+            };
+        }
+        return null;
+    }
+
+    static String promptHash(String systemPrompt, String userPrompt) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(systemPrompt.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            sha.update(userPrompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to hash prompt: " + e.getMessage());
+        }
+    }
+}
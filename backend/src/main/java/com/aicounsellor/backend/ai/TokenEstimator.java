@@ -0,0 +1,41 @@
+package com.aicounsellor.backend.ai;
+
+/**
+ * Local approximation of BPE token counts, good enough for budgeting prompts
+ * without shipping a provider tokenizer: letter runs cost about one token per
+ * four characters, digit runs one per three, every other symbol one each, and
+ * whitespace is absorbed into the following token.
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {}
+
+    public static int estimate(CharSequence text) {
+        if (text == null) return 0;
+
+        int tokens = 0;
+        int i = 0;
+        int n = text.length();
+
+        while (i < n) {
+            char ch = text.charAt(i);
+
+            if (Character.isWhitespace(ch)) {
+                i++;
+            } else if (Character.isLetter(ch)) {
+                int start = i;
+                while (i < n && Character.isLetter(text.charAt(i))) i++;
+                tokens += (i - start + 3) / 4;
+            } else if (Character.isDigit(ch)) {
+                int start = i;
+                while (i < n && Character.isDigit(text.charAt(i))) i++;
+                tokens += (i - start + 2) / 3;
+            } else {
+                tokens++;
+                i++;
+            }
+        }
+
+        return tokens;
+    }
+}
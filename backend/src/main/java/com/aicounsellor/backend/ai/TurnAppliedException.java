@@ -0,0 +1,13 @@
+package com.aicounsellor.backend.ai;
+
+/**
+ * A chat turn failed after its actions had run. Running the turn again would
+ * apply them a second time, so callers that retry (the async job worker)
+ * must not.
+ */
+public class TurnAppliedException extends RuntimeException {
+
+    public TurnAppliedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
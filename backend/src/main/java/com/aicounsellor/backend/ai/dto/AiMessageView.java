@@ -0,0 +1,17 @@
+package com.aicounsellor.backend.ai.dto;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// what the chat history needs from ai_messages (no user_id round-trip)
+@Data
+@AllArgsConstructor
+public class AiMessageView {
+    private UUID id;
+    private String role;
+    private String content;
+    private OffsetDateTime createdAt;
+}
@@ -0,0 +1,19 @@
+package com.aicounsellor.backend.ai.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// The {reply, actions} object the model is instructed to return.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AiModelOutput {
+    private String reply;
+    private List<AiToolAction> actions;
+}
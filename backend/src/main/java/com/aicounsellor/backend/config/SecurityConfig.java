@@ -12,6 +12,8 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import com.aicounsellor.backend.security.JwtAuthFilter;
 import com.aicounsellor.backend.security.JwtService;
 
+import jakarta.servlet.DispatcherType;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -28,9 +30,14 @@ public class SecurityConfig {
             .formLogin(form -> form.disable())
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                // streamed responses (/ai/chat/stream) complete on an async dispatch,
+                // the original request was already authenticated
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/health").permitAll()
                 .requestMatchers("/auth/**").permitAll()
                 .requestMatchers("/internal/**").permitAll()
+                // probes only; metrics and prometheus expose internals and need a token
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
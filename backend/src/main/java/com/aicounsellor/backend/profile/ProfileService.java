@@ -4,6 +4,7 @@ import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.aicounsellor.backend.profile.dto.UpdateProfileRequest;
@@ -18,17 +19,20 @@ public class ProfileService {
     private final StageService stageService;
     private final UniversityService universityService;
     private final TaskService taskService;
+    private final ApplicationEventPublisher events;
 
     public ProfileService(
             UserProfileRepository repo,
             StageService stageService,
             UniversityService universityService,
-            TaskService taskService
+            TaskService taskService,
+            ApplicationEventPublisher events
     ) {
         this.repo = repo;
         this.stageService = stageService;
         this.universityService = universityService;
         this.taskService = taskService;
+        this.events = events;
     }
 
     public UserProfile getOrCreate(UUID userId) {
@@ -72,6 +76,7 @@ public class ProfileService {
 
         UserProfile saved = repo.save(p);
         stageService.recalculateStage(userId);
+        events.publishEvent(new UserContextChangedEvent(userId));
 
         return saved;
     }
@@ -112,6 +117,7 @@ public class ProfileService {
         UserProfile saved = repo.save(p);
 
         stageService.recalculateStage(userId);
+        events.publishEvent(new UserContextChangedEvent(userId));
 
         return saved;
     }
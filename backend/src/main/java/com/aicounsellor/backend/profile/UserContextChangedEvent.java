@@ -0,0 +1,9 @@
+package com.aicounsellor.backend.profile;
+
+import java.util.UUID;
+
+/**
+ * Published when something that feeds a user's AI context changes
+ * (profile fields, onboarding, shortlist or lock state).
+ */
+public record UserContextChangedEvent(UUID userId) {}
@@ -41,4 +41,14 @@ public class UserProfile {
     private boolean onboardingCompleted = false;
 
     private OffsetDateTime updatedAt;
+
+    /**
+     * Whether an IELTS/GRE/SOP status means the step is still to do: unset,
+     * "not started" or "pending". Task generation and scoring both use this.
+     */
+    public static boolean isNotReady(String status) {
+        if (status == null) return true;
+        String s = status.toLowerCase();
+        return s.contains("not") || s.contains("pending");
+    }
 }
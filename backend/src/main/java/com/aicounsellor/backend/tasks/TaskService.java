@@ -3,8 +3,12 @@ package com.aicounsellor.backend.tasks;
 import java.time.OffsetDateTime;
 import java.util.*;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import com.aicounsellor.backend.profile.UserContextChangedEvent;
 import com.aicounsellor.backend.profile.UserProfile;
 import com.aicounsellor.backend.profile.UserProfileRepository;
 import com.aicounsellor.backend.tasks.dto.GenerateTasksResponse;
@@ -12,6 +16,12 @@ import com.aicounsellor.backend.tasks.dto.GenerateTasksResponse;
 @Service
 public class TaskService {
 
+    private static final Logger log = LoggerFactory.getLogger(TaskService.class);
+
+    private static final String EXAM_TASK = "Book IELTS/TOEFL exam date and create prep schedule";
+    private static final String GRE_TASK = "Decide if GRE/GMAT is required for target universities";
+    private static final String SOP_TASK = "Start SOP draft (collect projects, internships, achievements)";
+
     private final UserTaskRepository repo;
     private final UserProfileRepository profileRepo;
 
@@ -37,15 +47,9 @@ public class TaskService {
         titles.add("Create tuition + living cost plan for selected countries");
 
         // readiness tasks
-        if (profile.getIeltsStatus() == null || profile.getIeltsStatus().toLowerCase().contains("not")) {
-            titles.add("Book IELTS/TOEFL exam date and create prep schedule");
-        }
-        if (profile.getGreStatus() == null || profile.getGreStatus().toLowerCase().contains("not")) {
-            titles.add("Decide if GRE/GMAT is required for target universities");
-        }
-        if (profile.getSopStatus() == null || profile.getSopStatus().toLowerCase().contains("not")) {
-            titles.add("Start SOP draft (collect projects, internships, achievements)");
-        }
+        readiness(profile).forEach((title, status) -> {
+            if (UserProfile.isNotReady(status)) titles.add(title);
+        });
 
         int created = 0;
         for (String t : titles) {
@@ -82,8 +86,42 @@ public class TaskService {
         return repo.save(task);
     }
 
-	public void recalculateForUser(UUID userId) {
-		// TODO Auto-generated method stub
-		
-	}
+    /**
+     * Closes pending readiness tasks whose profile status has since moved on
+     * (e.g. IELTS booked through the profile form). New tasks are still only
+     * created by {@link #generate}.
+     */
+    public void recalculateForUser(UUID userId) {
+        UserProfile profile = profileRepo.findById(userId).orElse(null);
+        if (profile == null) return;
+
+        Map<String, String> readiness = readiness(profile);
+        for (UserTask task : repo.findByUserIdOrderByCreatedAtDesc(userId)) {
+            if (!"pending".equals(task.getStatus()) || !readiness.containsKey(task.getTitle())) continue;
+            if (UserProfile.isNotReady(readiness.get(task.getTitle()))) continue;
+
+            task.setStatus("done");
+            task.setCompletedAt(OffsetDateTime.now());
+            repo.save(task);
+        }
+    }
+
+    @EventListener
+    public void onUserContextChanged(UserContextChangedEvent event) {
+        // the change itself is already saved; do not fail the request over derived data
+        try {
+            recalculateForUser(event.userId());
+        } catch (RuntimeException e) {
+            log.warn("task recalculation for {} failed: {}", event.userId(), e.getMessage());
+        }
+    }
+
+    // readiness task title -> the profile status it tracks
+    private Map<String, String> readiness(UserProfile p) {
+        Map<String, String> m = new LinkedHashMap<>();
+        m.put(EXAM_TASK, p.getIeltsStatus());
+        m.put(GRE_TASK, p.getGreStatus());
+        m.put(SOP_TASK, p.getSopStatus());
+        return m;
+    }
 }
@@ -0,0 +1,8 @@
+package com.aicounsellor.backend.universities;
+
+/**
+ * Published after the universities table was modified (e.g. an import), so
+ * the in-memory {@link UniversityCatalog} reloads right away instead of at
+ * its next scheduled refresh.
+ */
+public record CatalogChangedEvent(String reason) {}
@@ -0,0 +1,193 @@
+package com.aicounsellor.backend.universities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The catalog as parallel primitive arrays for the full discover recompute:
+ * yearly cost, a difficulty class and a country dictionary id per row, which
+ * is all filtering and bucketing read. GPA-based fields are only computed
+ * for the rows that are kept. Rows are kept in ranking tie-break order
+ * (name, then id), so a single forward pass that keeps the first k matches
+ * of each bucket already yields the top k in final order; no sort, no heap
+ * and no per-row objects.
+ */
+final class CatalogColumns {
+
+    /** Difficulty classes the bucket rules tell apart; anything else scores as "low". */
+    static final byte HIGH = 0, MEDIUM = 1, OTHER = 2;
+    static final String[] DIFFICULTY_CLASSES = {"high", "medium", ""};
+
+    static final Comparator<CatalogEntry> TIE_BREAK = Comparator
+            .comparing(CatalogEntry::name, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(CatalogEntry::id);
+
+    private final CatalogEntry[] entries;
+    private final int[] cost;
+    private final byte[] difficulty;
+    private final int[] country;
+    private final Map<String, Integer> countryIds = new HashMap<>();
+
+    CatalogColumns(List<CatalogEntry> rows) {
+        entries = rows.toArray(new CatalogEntry[0]);
+        Arrays.sort(entries, TIE_BREAK);
+
+        int n = entries.length;
+        cost = new int[n];
+        difficulty = new byte[n];
+        country = new int[n];
+        for (int i = 0; i < n; i++) {
+            CatalogEntry e = entries[i];
+            cost[i] = e.yearlyCostUsd();
+            difficulty[i] = difficultyClass(e.difficulty());
+            country[i] = countryIds.computeIfAbsent(e.country(), k -> countryIds.size());
+        }
+    }
+
+    static byte difficultyClass(String difficulty) {
+        if ("high".equalsIgnoreCase(difficulty)) return HIGH;
+        if ("medium".equalsIgnoreCase(difficulty)) return MEDIUM;
+        return OTHER;
+    }
+
+    /** Top rows of one recompute, in ranking order, and how many rows passed the filters. */
+    record Selection(List<CatalogEntry> entries, int total) {}
+
+    /**
+     * Rows in {@code countries} (empty = all) costing at most {@code maxCost}
+     * (null = any), best {@code k} first. {@code rankByClass} is the bucket
+     * rank each difficulty class scores to for this user. With a pool, the
+     * row range is split into chunks of at least {@code minChunk} rows that
+     * are scanned in parallel and merged pairwise.
+     */
+    Selection select(Collection<String> countries, Integer maxCost, int[] rankByClass, int k,
+                     ForkJoinPool pool, int minChunk) {
+        boolean[] allowed = new boolean[countryIds.size()];
+        if (countries.isEmpty()) {
+            Arrays.fill(allowed, true);
+        } else {
+            for (String c : countries) {
+                Integer id = countryIds.get(c);
+                if (id != null) allowed[id] = true;
+            }
+        }
+        int max = maxCost != null ? maxCost : Integer.MAX_VALUE;
+
+        // one output slot per distinct rank, best rank first; classes sharing a
+        // rank share a slot, which stays in tie-break order because i only grows
+        int[] distinct = Arrays.stream(rankByClass).distinct().sorted().toArray();
+        int[] slotOf = new int[rankByClass.length];
+        for (int c = 0; c < rankByClass.length; c++) {
+            slotOf[c] = Arrays.binarySearch(distinct, rankByClass[c]);
+        }
+
+        Scan scan = new Scan(allowed, max, slotOf, distinct.length, Math.min(k, entries.length));
+        Partial result = pool == null
+                ? scan.range(0, entries.length)
+                : pool.invoke(new ScanTask(scan, 0, entries.length, Math.max(1, minChunk)));
+
+        List<CatalogEntry> out = new ArrayList<>(Math.min(scan.cap, result.total));
+        for (int s = 0; s < result.picks.length && out.size() < scan.cap; s++) {
+            for (int j = 0; j < result.counts[s] && out.size() < scan.cap; j++) {
+                out.add(entries[result.picks[s][j]]);
+            }
+        }
+        return new Selection(out, result.total);
+    }
+
+    // First cap matching rows of each slot within a row range, plus the match count.
+    private record Partial(int[][] picks, int[] counts, int total) {
+
+        // every row on the left precedes every row on the right, so per slot
+        // the left picks come first and the right ones fill what is left
+        Partial merge(Partial right, int cap) {
+            int[][] picks = new int[this.picks.length][];
+            int[] counts = new int[this.picks.length];
+            for (int s = 0; s < picks.length; s++) {
+                int fromRight = Math.min(cap - this.counts[s], right.counts[s]);
+                if (fromRight == 0) {
+                    picks[s] = this.picks[s];
+                    counts[s] = this.counts[s];
+                    continue;
+                }
+                picks[s] = Arrays.copyOf(this.picks[s], this.counts[s] + fromRight);
+                System.arraycopy(right.picks[s], 0, picks[s], this.counts[s], fromRight);
+                counts[s] = this.counts[s] + fromRight;
+            }
+            return new Partial(picks, counts, this.total + right.total);
+        }
+    }
+
+    private final class Scan {
+        final boolean[] allowed;
+        final int max;
+        final int[] slotOf;
+        final int slots;
+        final int cap;
+
+        Scan(boolean[] allowed, int max, int[] slotOf, int slots, int cap) {
+            this.allowed = allowed;
+            this.max = max;
+            this.slotOf = slotOf;
+            this.slots = slots;
+            this.cap = cap;
+        }
+
+        Partial range(int from, int to) {
+            int[][] picks = new int[slots][Math.min(cap, to - from)];
+            int[] counts = new int[slots];
+            int total = 0;
+
+            for (int i = from; i < to; i++) {
+                if (cost[i] > max || !allowed[country[i]]) continue;
+                total++;
+                int slot = slotOf[difficulty[i]];
+                if (counts[slot] < picks[slot].length) picks[slot][counts[slot]++] = i;
+            }
+            return new Partial(picks, counts, total);
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<Partial> {
+        private final Scan scan;
+        private final int from;
+        private final int to;
+        private final int minChunk;
+
+        ScanTask(Scan scan, int from, int to, int minChunk) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+            this.minChunk = minChunk;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= minChunk) {
+                return scan.range(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(scan, from, mid, minChunk);
+            ScanTask right = new ScanTask(scan, mid, to, minChunk);
+            right.fork();
+            Partial l = left.compute();
+            return l.merge(right.join(), scan.cap);
+        }
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    // per-row column bytes: cost + difficulty + country id + entry slot
+    long estimatedBytes() {
+        return (long) entries.length * (4 + 1 + 4 + 4);
+    }
+}
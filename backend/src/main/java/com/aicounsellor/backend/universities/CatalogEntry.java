@@ -0,0 +1,24 @@
+package com.aicounsellor.backend.universities;
+
+import java.util.UUID;
+
+/**
+ * Immutable catalog row as held by {@link UniversityCatalog}; the fields
+ * discover needs, without JPA state.
+ */
+public record CatalogEntry(
+        UUID id,
+        String name,
+        String country,
+        String degree,
+        String field,
+        int yearlyCostUsd,
+        Double minGpa,
+        String difficulty
+) {
+
+    public static CatalogEntry of(University u) {
+        return new CatalogEntry(u.getId(), u.getName(), u.getCountry(), u.getDegree(), u.getField(),
+                u.getYearlyCostUsd(), u.getMinGpa(), u.getDifficulty());
+    }
+}
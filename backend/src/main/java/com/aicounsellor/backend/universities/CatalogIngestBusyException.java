@@ -0,0 +1,9 @@
+package com.aicounsellor.backend.universities;
+
+/** Another catalog load holds the ingest lock; surfaces as HTTP 409. */
+public class CatalogIngestBusyException extends RuntimeException {
+
+    public CatalogIngestBusyException(String message) {
+        super(message);
+    }
+}
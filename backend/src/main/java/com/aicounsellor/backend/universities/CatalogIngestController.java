@@ -0,0 +1,75 @@
+package com.aicounsellor.backend.universities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Bulk catalog load over HTTP; the raw request body is streamed into
+ * {@link CatalogIngestService}, never buffered:
+ *   curl -X POST -H "X-Admin-Token: $ADMIN_TOKEN" -H "Content-Type: text/csv" \
+ *        --data-binary @programs.csv http://localhost:8080/internal/catalog/ingest
+ * Send Content-Type application/x-ndjson (or ?format=ndjson) for NDJSON, and
+ * Content-Encoding: gzip for a compressed body. Disabled unless
+ * app.admin.token is set.
+ */
+@RestController
+@RequestMapping("/internal/catalog")
+public class CatalogIngestController {
+
+    private final CatalogIngestService ingestService;
+
+    @Value("${app.admin.token:}")
+    private String adminToken;
+
+    public CatalogIngestController(CatalogIngestService ingestService) {
+        this.ingestService = ingestService;
+    }
+
+    @PostMapping("/ingest")
+    public ResponseEntity<Map<String, Object>> ingest(
+            @RequestHeader(value = "X-Admin-Token", required = false) String token,
+            @RequestParam(required = false) String format,
+            HttpServletRequest request
+    ) throws IOException {
+        if (adminToken == null || adminToken.isBlank() || token == null
+                || !MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Invalid admin token"));
+        }
+
+        String contentType = request.getContentType();
+        String fmt = format != null ? format
+                : contentType != null && (contentType.contains("ndjson") || contentType.contains("json")) ? "ndjson" : "csv";
+
+        InputStream body = request.getInputStream();
+        if ("gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+            body = new GZIPInputStream(body, 1 << 16);
+        }
+        return ResponseEntity.ok(ingestService.ingest(body, fmt, "http"));
+    }
+
+    @ExceptionHandler(CatalogIngestBusyException.class)
+    public ResponseEntity<Map<String, Object>> busy(CatalogIngestBusyException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(CatalogRejectedException.class)
+    public ResponseEntity<Map<String, Object>> rejected(CatalogRejectedException e) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,69 @@
+package com.aicounsellor.backend.universities;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command-line catalog load: starts the app, ingests one file and exits
+ * (status 1 on failure).
+ *   java -jar backend.jar --spring.main.web-application-type=none \
+ *        --app.catalog.ingest.file=programs.csv.gz
+ * The format follows the extension (.csv, .ndjson / .jsonl, optionally
+ * .gz) unless app.catalog.ingest.format is set.
+ */
+@Component
+@ConditionalOnProperty(name = "app.catalog.ingest.file")
+public class CatalogIngestRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogIngestRunner.class);
+
+    private final CatalogIngestService ingestService;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${app.catalog.ingest.file}")
+    private String file;
+
+    @Value("${app.catalog.ingest.format:}")
+    private String format;
+
+    public CatalogIngestRunner(CatalogIngestService ingestService, ConfigurableApplicationContext context) {
+        this.ingestService = ingestService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Path path = Path.of(file);
+        String name = path.getFileName().toString().toLowerCase();
+        boolean gzip = name.endsWith(".gz");
+        if (gzip) name = name.substring(0, name.length() - 3);
+        String fmt = !format.isBlank() ? format
+                : name.endsWith(".ndjson") || name.endsWith(".jsonl") ? "ndjson" : "csv";
+
+        int status = 0;
+        try (InputStream raw = Files.newInputStream(path);
+             InputStream in = gzip ? new GZIPInputStream(raw, 1 << 16) : raw) {
+            Map<String, Object> report = ingestService.ingest(in, fmt, path.toString());
+            log.info("catalog ingest report: {}", report);
+        } catch (Exception e) {
+            log.error("catalog ingest failed", e);
+            status = 1;
+        }
+
+        int code = status;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
@@ -0,0 +1,575 @@
+package com.aicounsellor.backend.universities;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Bulk load of the universities table from CSV or NDJSON (one program per
+ * row). The input is streamed: each row is validated and normalized, then
+ * written straight into a temp staging table through COPY, and one
+ * INSERT .. ON CONFLICT merges the staging table into public.universities.
+ * Memory stays flat whatever the file size. Everything runs in one
+ * transaction, so a failed or rejected load leaves the catalog as it was;
+ * a successful one refreshes the in-memory catalog.
+ *
+ * Columns (CSV header or JSON keys; case, "_" and "-" ignored): name,
+ * country, yearly_cost_usd (or cost, tuition), difficulty, and optionally
+ * id, degree, field, min_gpa. A row without an id updates the existing
+ * university with the same name, country, degree and field (case and
+ * spacing ignored), whatever id that row was created with; a new one gets
+ * an id derived from those four, so loading the same file twice updates
+ * rather than duplicates.
+ */
+@Service
+public class CatalogIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogIngestService.class);
+
+    private static final String STAGING_DDL = """
+            create temp table catalog_staging (
+                line            bigint,
+                id              uuid,
+                name            text,
+                country         text,
+                degree          text,
+                field           text,
+                yearly_cost_usd int,
+                min_gpa         double precision,
+                difficulty      text,
+                derived_id      boolean
+            ) on commit drop
+            """;
+
+    private static final String COPY_SQL =
+            "copy catalog_staging (line, id, name, country, degree, field, yearly_cost_usd, min_gpa, difficulty, derived_id)"
+                    + " from stdin (format csv)";
+
+    // rows without an id take the id of the existing university they describe (the oldest,
+    // should the table already hold duplicates), so rows loaded outside this service are
+    // updated in place instead of inserted again under the derived id
+    private static final String RESOLVE_IDS_SQL = """
+            update catalog_staging s
+               set id = u.id
+              from (select distinct on (k) k, id
+                      from (select id, created_at, %s as k from public.universities u) x
+                     order by k, created_at nulls last, id) u
+             where s.derived_id
+               and u.k = %s
+            """.formatted(naturalKey("u"), naturalKey("s"));
+
+    // a file that lists an id twice: the last row wins
+    private static final String MERGE_SQL = """
+            with up as (
+                insert into public.universities (id, name, country, degree, field, yearly_cost_usd, min_gpa, difficulty, created_at)
+                select distinct on (id) id, name, country, degree, field, yearly_cost_usd, min_gpa, difficulty, now()
+                  from catalog_staging
+                 order by id, line desc
+                on conflict (id) do update
+                   set name = excluded.name, country = excluded.country, degree = excluded.degree,
+                       field = excluded.field, yearly_cost_usd = excluded.yearly_cost_usd,
+                       min_gpa = excluded.min_gpa, difficulty = excluded.difficulty
+                 where (universities.name, universities.country, universities.degree, universities.field,
+                        universities.yearly_cost_usd, universities.min_gpa, universities.difficulty)
+                       is distinct from
+                       (excluded.name, excluded.country, excluded.degree, excluded.field,
+                        excluded.yearly_cost_usd, excluded.min_gpa, excluded.difficulty)
+                returning (xmax = 0) as inserted
+            )
+            select count(*) filter (where inserted) as inserted, count(*) filter (where not inserted) as updated
+              from up
+            """;
+
+    // slots of a normalized row
+    static final int ID = 0, NAME = 1, COUNTRY = 2, DEGREE = 3, FIELD = 4, COST = 5, MIN_GPA = 6, DIFFICULTY = 7;
+    private static final int SLOTS = 8;
+
+    private static final Map<String, Integer> COLUMNS = Map.ofEntries(
+            Map.entry("id", ID),
+            Map.entry("name", NAME), Map.entry("university", NAME), Map.entry("universityname", NAME),
+            Map.entry("country", COUNTRY), Map.entry("countrycode", COUNTRY),
+            Map.entry("degree", DEGREE),
+            Map.entry("field", FIELD), Map.entry("fieldofstudy", FIELD), Map.entry("program", FIELD),
+            Map.entry("yearlycostusd", COST), Map.entry("yearlycost", COST), Map.entry("cost", COST),
+            Map.entry("tuition", COST), Map.entry("tuitionusd", COST),
+            Map.entry("mingpa", MIN_GPA), Map.entry("gpa", MIN_GPA),
+            Map.entry("difficulty", DIFFICULTY)
+    );
+
+    // the catalog (and the onboarding form) use these short names
+    private static final Map<String, String> COUNTRIES = countries();
+
+    private static final int MAX_COST_USD = 1_000_000;
+    private static final int MAX_NAME_LENGTH = 300;
+    private static final int MAX_ERROR_SAMPLES = 20;
+
+    private final JdbcTemplate jdbc;
+    private final ApplicationEventPublisher events;
+
+    // more invalid rows than this aborts the load
+    @Value("${app.catalog.ingest.maxRejects:1000}")
+    private long maxRejects = 1000;
+
+    public CatalogIngestService(JdbcTemplate jdbc, ApplicationEventPublisher events) {
+        this.jdbc = jdbc;
+        this.events = events;
+    }
+
+    /** Counters of one load; {@code errors} holds the first few rejected rows. */
+    static final class Report {
+        long read, staged, rejected, inserted, updated;
+        final List<String> errors = new ArrayList<>();
+
+        void reject(long line, String reason) {
+            rejected++;
+            if (errors.size() < MAX_ERROR_SAMPLES) errors.add("line " + line + ": " + reason);
+        }
+    }
+
+    /**
+     * Loads {@code in} ("csv" or "ndjson") into public.universities and
+     * returns what happened, including rows/sec. Throws, and changes
+     * nothing, if more than maxRejects rows are invalid.
+     */
+    public Map<String, Object> ingest(InputStream in, String format, String source) {
+        RowSource rows = rowSource(in, format);
+        Report report = new Report();
+        long start = System.nanoTime();
+        long[] mergeNanos = new long[1];
+
+        jdbc.execute((ConnectionCallback<Void>) con -> {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try (Statement st = con.createStatement()) {
+                // one load at a time across all nodes
+                try (ResultSet rs = st.executeQuery("select pg_try_advisory_xact_lock(hashtext('catalog_ingest'))")) {
+                    rs.next();
+                    if (!rs.getBoolean(1)) throw new CatalogIngestBusyException("Catalog ingestion already running");
+                }
+                st.execute(STAGING_DDL);
+
+                PGCopyOutputStream copy = new PGCopyOutputStream(con.unwrap(PGConnection.class), COPY_SQL, 1 << 16);
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8), 1 << 16)) {
+                    stage(rows, out, report);
+                }
+
+                long mergeStart = System.nanoTime();
+                st.execute("analyze catalog_staging");
+                st.executeUpdate(RESOLVE_IDS_SQL);
+                try (ResultSet rs = st.executeQuery(MERGE_SQL)) {
+                    rs.next();
+                    report.inserted = rs.getLong("inserted");
+                    report.updated = rs.getLong("updated");
+                }
+                mergeNanos[0] = System.nanoTime() - mergeStart;
+
+                con.commit();
+                return null;
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } catch (JsonProcessingException e) {
+                con.rollback();
+                throw new CatalogRejectedException("Unreadable catalog file: " + e.getOriginalMessage());
+            } catch (IOException e) {
+                con.rollback();
+                throw new RuntimeException("Catalog ingestion failed: " + e.getMessage());
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        });
+
+        long totalNanos = System.nanoTime() - start;
+        if (report.inserted + report.updated > 0) {
+            events.publishEvent(new CatalogChangedEvent("ingest"));
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("source", source);
+        out.put("format", format);
+        out.put("read", report.read);
+        out.put("staged", report.staged);
+        out.put("rejected", report.rejected);
+        out.put("inserted", report.inserted);
+        out.put("updated", report.updated);
+        out.put("copyMs", (totalNanos - mergeNanos[0]) / 1_000_000);
+        out.put("mergeMs", mergeNanos[0] / 1_000_000);
+        out.put("rowsPerSec", totalNanos == 0 ? 0 : Math.round(report.read * 1e9 / totalNanos));
+        out.put("errors", report.errors);
+
+        log.info("catalog ingest {}: read={} rejected={} inserted={} updated={} in {}ms ({} rows/s)", source,
+                report.read, report.rejected, report.inserted, report.updated, totalNanos / 1_000_000, out.get("rowsPerSec"));
+        return out;
+    }
+
+    static RowSource rowSource(InputStream in, String format) {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        String f = format == null ? "csv" : format.toLowerCase(Locale.ROOT);
+        return switch (f) {
+            case "csv" -> new CsvRows(reader);
+            case "ndjson", "jsonl", "json" -> new NdjsonRows(reader);
+            default -> throw new CatalogRejectedException("Unknown catalog format: " + format);
+        };
+    }
+
+    /** Validates every row of {@code rows} and writes the good ones to {@code out} as COPY csv. */
+    void stage(RowSource rows, Writer out, Report report) throws IOException {
+        String[] row = new String[SLOTS];
+        StringBuilder line = new StringBuilder(256);
+        while (rows.next(row)) {
+            report.read++;
+            boolean derivedId = row[ID] == null || row[ID].isBlank();
+            String error = normalize(row);
+            if (error != null) {
+                report.reject(rows.line(), error);
+                if (report.rejected > maxRejects) {
+                    throw new CatalogRejectedException("Too many invalid rows (over " + maxRejects
+                            + "), nothing was imported. First errors: " + report.errors);
+                }
+                continue;
+            }
+
+            line.setLength(0);
+            line.append(rows.line()).append(',').append(row[ID]).append(',');
+            quote(line, row[NAME]).append(',');
+            quote(line, row[COUNTRY]).append(',');
+            quote(line, row[DEGREE]).append(',');
+            quote(line, row[FIELD]).append(',');
+            line.append(row[COST]).append(',');
+            if (row[MIN_GPA] != null) line.append(row[MIN_GPA]);
+            line.append(',').append(row[DIFFICULTY]).append(',').append(derivedId).append('\n');
+            out.append(line);
+            report.staged++;
+        }
+        if (report.read == 0) {
+            throw new CatalogRejectedException("Catalog file has no rows");
+        }
+    }
+
+    /** Normalizes {@code row} in place; returns why it is invalid, or null. */
+    static String normalize(String[] row) {
+        String name = clean(row[NAME]);
+        if (name == null) return "name missing";
+        if (name.length() > MAX_NAME_LENGTH) return "name longer than " + MAX_NAME_LENGTH;
+        row[NAME] = name;
+
+        String country = clean(row[COUNTRY]);
+        if (country == null) return "country missing";
+        String canonical = COUNTRIES.get(country.toLowerCase(Locale.ROOT));
+        if (canonical == null) return "unknown country '" + country + "'";
+        row[COUNTRY] = canonical;
+
+        row[DEGREE] = clean(row[DEGREE]);
+        row[FIELD] = clean(row[FIELD]);
+
+        String cost = clean(row[COST]);
+        if (cost == null) return "yearly_cost_usd missing";
+        try {
+            double usd = parseUsd(cost);
+            if (!(usd >= 0 && usd <= MAX_COST_USD)) return "yearly_cost_usd out of range: " + cost;
+            row[COST] = Long.toString(Math.round(usd));
+        } catch (NumberFormatException e) {
+            return "yearly_cost_usd not a number: " + cost;
+        }
+
+        String gpa = clean(row[MIN_GPA]);
+        if (gpa != null) {
+            try {
+                double g = Double.parseDouble(gpa);
+                if (!(g >= 0 && g <= 10)) return "min_gpa out of range: " + gpa;
+                row[MIN_GPA] = Double.toString(g);
+            } catch (NumberFormatException e) {
+                return "min_gpa not a number: " + gpa;
+            }
+        } else {
+            row[MIN_GPA] = null;
+        }
+
+        String difficulty = clean(row[DIFFICULTY]);
+        row[DIFFICULTY] = difficulty == null ? null : switch (difficulty.toLowerCase(Locale.ROOT)) {
+            case "low", "easy" -> "low";
+            case "medium", "moderate", "mid" -> "medium";
+            case "high", "hard" -> "high";
+            default -> null;
+        };
+        if (row[DIFFICULTY] == null) return "difficulty must be low, medium or high: " + difficulty;
+
+        String id = clean(row[ID]);
+        if (id == null) {
+            String key = String.join("|", name, canonical, String.valueOf(row[DEGREE]), String.valueOf(row[FIELD]));
+            row[ID] = UUID.nameUUIDFromBytes(key.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8)).toString();
+        } else {
+            try {
+                row[ID] = UUID.fromString(id).toString();
+            } catch (IllegalArgumentException e) {
+                return "id not a UUID: " + id;
+            }
+        }
+        return null;
+    }
+
+    // trimmed, inner whitespace collapsed; blank -> null
+    private static String clean(String s) {
+        if (s == null) return null;
+        String t = s.strip();
+        if (t.isEmpty()) return null;
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (Character.isWhitespace(c) && (c != ' ' || Character.isWhitespace(t.charAt(i + 1)))) {
+                return collapse(t);
+            }
+        }
+        return t;
+    }
+
+    private static String collapse(String t) {
+        StringBuilder b = new StringBuilder(t.length());
+        boolean blank = false;
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (Character.isWhitespace(c)) {
+                blank = true;
+            } else {
+                if (blank) b.append(' ');
+                blank = false;
+                b.append(c);
+            }
+        }
+        return b.toString();
+    }
+
+    // "$12,500" -> 12500
+    private static double parseUsd(String s) {
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            StringBuilder b = new StringBuilder(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c != '$' && c != ',' && c != '_' && c != ' ') b.append(c);
+            }
+            return Double.parseDouble(b.toString());
+        }
+    }
+
+    // COPY csv: quoted text, unquoted empty = null
+    private static StringBuilder quote(StringBuilder b, String s) {
+        if (s == null) return b;
+        b.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') b.append('"');
+            b.append(c);
+        }
+        return b.append('"');
+    }
+
+    // ISO 3166 alpha-2 / alpha-3 codes and English names -> the catalog's name
+    private static Map<String, String> countries() {
+        Map<String, String> out = new HashMap<>();
+        for (String a2 : Locale.getISOCountries()) {
+            Locale l = Locale.of("", a2);
+            String name = switch (a2) {
+                case "US" -> "USA";
+                case "GB" -> "UK";
+                default -> l.getDisplayCountry(Locale.ENGLISH);
+            };
+            out.put(a2.toLowerCase(Locale.ROOT), name);
+            out.put(l.getISO3Country().toLowerCase(Locale.ROOT), name);
+            out.put(l.getDisplayCountry(Locale.ENGLISH).toLowerCase(Locale.ROOT), name);
+            out.put(name.toLowerCase(Locale.ROOT), name);
+        }
+        for (String alias : List.of("united states of america", "u.s.", "u.s.a.", "america")) out.put(alias, "USA");
+        for (String alias : List.of("great britain", "britain", "england", "scotland", "wales", "u.k.")) out.put(alias, "UK");
+        return out;
+    }
+
+    // name|country|degree|field, lower-cased with blanks collapsed, as normalize() cleans them
+    private static String naturalKey(String t) {
+        return "lower(concat_ws('|', regexp_replace(btrim(" + t + ".name), '\\s+', ' ', 'g'), btrim(" + t + ".country),"
+                + " coalesce(regexp_replace(btrim(" + t + ".degree), '\\s+', ' ', 'g'), ''),"
+                + " coalesce(regexp_replace(btrim(" + t + ".field), '\\s+', ' ', 'g'), '')))";
+    }
+
+    private static String key(String header) {
+        return header.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    /** Rows of an input file, filled into a reused slot array. */
+    interface RowSource {
+        /** Fills {@code row} (slots by index, absent = null); false at end of input. */
+        boolean next(String[] row) throws IOException;
+
+        /** Input line the last row started on. */
+        long line();
+    }
+
+    // RFC 4180: header row, "," separated, quoted cells may hold "", commas and newlines
+    static final class CsvRows implements RowSource {
+        private final Reader in;
+        private final char[] buf = new char[1 << 16];
+        private int pos, len;
+        private long line = 1, rowLine;
+        private final StringBuilder cell = new StringBuilder();
+        private final List<String> cells = new ArrayList<>();
+        private int[] slotOf;
+
+        CsvRows(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public boolean next(String[] row) throws IOException {
+            if (slotOf == null) {
+                if (!record()) return false;
+                slotOf = new int[cells.size()];
+                for (int i = 0; i < cells.size(); i++) {
+                    String h = i == 0 ? cells.get(0).replace("\uFEFF", "") : cells.get(i);
+                    slotOf[i] = COLUMNS.getOrDefault(key(h), -1);
+                }
+            }
+            while (record()) {
+                if (cells.size() == 1 && cells.get(0).isEmpty()) continue;
+                Arrays.fill(row, null);
+                for (int i = 0; i < cells.size() && i < slotOf.length; i++) {
+                    if (slotOf[i] >= 0) row[slotOf[i]] = cells.get(i);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long line() {
+            return rowLine;
+        }
+
+        private boolean record() throws IOException {
+            cells.clear();
+            cell.setLength(0);
+            rowLine = line;
+            boolean quoted = false;
+            int c = read();
+            if (c < 0) return false;
+            for (; c >= 0; c = read()) {
+                if (quoted) {
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            read();
+                            cell.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n') line++;
+                        cell.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    cells.add(cell.toString());
+                    cell.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    break;
+                } else if (c != '\r') {
+                    cell.append((char) c);
+                }
+            }
+            cells.add(cell.toString());
+            return true;
+        }
+
+        private int read() throws IOException {
+            if (pos == len && !fill()) return -1;
+            return buf[pos++];
+        }
+
+        private int peek() throws IOException {
+            if (pos == len && !fill()) return -1;
+            return buf[pos];
+        }
+
+        private boolean fill() throws IOException {
+            len = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (len <= 0) {
+                len = 0;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    // one JSON object per row; read with the streaming parser, never as a tree
+    static final class NdjsonRows implements RowSource {
+        private static final JsonFactory JSON = new JsonFactory();
+        private final JsonParser parser;
+        private long rowLine;
+
+        NdjsonRows(Reader in) {
+            try {
+                this.parser = JSON.createParser(in);
+            } catch (IOException e) {
+                throw new RuntimeException("Unreadable catalog file: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public boolean next(String[] row) throws IOException {
+            JsonToken t = parser.nextToken();
+            if (t == null) return false;
+            if (t != JsonToken.START_OBJECT) {
+                throw new CatalogRejectedException("Expected a JSON object per line at line " + parser.currentLocation().getLineNr());
+            }
+            rowLine = parser.currentLocation().getLineNr();
+            Arrays.fill(row, null);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Integer slot = COLUMNS.get(key(parser.currentName()));
+                JsonToken v = parser.nextToken();
+                if (v.isScalarValue()) {
+                    if (slot != null && v != JsonToken.VALUE_NULL) row[slot] = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public long line() {
+            return rowLine;
+        }
+    }
+}
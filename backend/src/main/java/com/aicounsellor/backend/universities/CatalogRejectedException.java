@@ -0,0 +1,9 @@
+package com.aicounsellor.backend.universities;
+
+/** A catalog file that cannot be loaded as sent (format, too many bad rows); surfaces as HTTP 422. */
+public class CatalogRejectedException extends RuntimeException {
+
+    public CatalogRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.aicounsellor.backend.universities;
+
+/**
+ * Published by {@link UniversityCatalog} when a refresh swapped in a snapshot
+ * whose content differs from the previous one, so results scored against the
+ * old catalog can be recomputed.
+ */
+public record CatalogReloadedEvent(long version, long fingerprint) {}
@@ -0,0 +1,32 @@
+package com.aicounsellor.backend.universities;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/internal")
+public class CatalogStatsController {
+
+    private final UniversityCatalog catalog;
+    private final UniversityService universityService;
+    private final UniversityNameMatcher nameMatcher;
+
+    public CatalogStatsController(UniversityCatalog catalog, UniversityService universityService,
+                                  UniversityNameMatcher nameMatcher) {
+        this.catalog = catalog;
+        this.universityService = universityService;
+        this.nameMatcher = nameMatcher;
+    }
+
+    @GetMapping("/catalog-stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>(catalog.stats());
+        out.put("recommendations", universityService.recommendationStats());
+        out.put("nameMatcher", nameMatcher.stats());
+        return out;
+    }
+}
@@ -0,0 +1,9 @@
+package com.aicounsellor.backend.universities;
+
+/** A paging cursor (discover, chat history) that this server did not issue; surfaces as HTTP 400. */
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
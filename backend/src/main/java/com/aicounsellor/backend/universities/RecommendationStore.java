@@ -0,0 +1,201 @@
+package com.aicounsellor.backend.universities;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.aicounsellor.backend.universities.dto.UniversityDiscoverResponse;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Materialized discover results: one user_recommendations row per user
+ * (primary-key read), fronted by a small LRU + TTL cache on this node. The
+ * TTL bounds how long another node's recompute stays invisible here.
+ */
+@Component
+public class RecommendationStore {
+
+    private static final String UPSERT_SQL = """
+            insert into public.user_recommendations (user_id, inputs, catalog_fingerprint, total, items, computed_at)
+            values (?, ?::jsonb, ?, ?, ?::jsonb, ?)
+            on conflict (user_id) do update
+               set inputs = excluded.inputs, catalog_fingerprint = excluded.catalog_fingerprint,
+                   total = excluded.total, items = excluded.items, computed_at = excluded.computed_at
+            """;
+
+    private static final String SELECT_SQL = """
+            select user_id, inputs::text as inputs, catalog_fingerprint, total, items::text as items, computed_at
+              from public.user_recommendations
+             where user_id = ?
+            """;
+
+    private static final TypeReference<List<UniversityDiscoverResponse>> ITEMS = new TypeReference<>() {};
+
+    private final JdbcTemplate jdbc;
+    private final ObjectMapper mapper;
+
+    @Value("${app.recommendations.cache.maxEntries:10000}")
+    private int maxEntries;
+
+    @Value("${app.recommendations.cache.ttlSeconds:30}")
+    private long ttlSeconds;
+
+    private record Cached(Recommendations value, long expiresAt) {}
+
+    private final LinkedHashMap<UUID, Cached> hot = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits = 0;
+    private long reads = 0;
+    private long writes = 0;
+
+    public RecommendationStore(JdbcTemplate jdbc, ObjectMapper mapper) {
+        this.jdbc = jdbc;
+        this.mapper = mapper;
+    }
+
+    /** The stored result, or null if this user has none yet. */
+    public Recommendations get(UUID userId) {
+        synchronized (this) {
+            Cached c = hot.get(userId);
+            if (c != null && c.expiresAt() >= System.currentTimeMillis()) {
+                hits++;
+                return c.value();
+            }
+            reads++;
+        }
+
+        List<Recommendations> rows = jdbc.query(SELECT_SQL, (rs, i) -> read(rs, Integer.MAX_VALUE), userId);
+        if (rows.isEmpty()) return null;
+
+        remember(rows.get(0));
+        return rows.get(0);
+    }
+
+    /**
+     * Like {@link #get}, but a table read parses only the first {@code k}
+     * items (the JSON array is read up to there and the rest skipped), for
+     * callers that want the head of a long ranking. Such a partial result
+     * is not cached; a cached full one is returned as is.
+     */
+    public Recommendations head(UUID userId, int k) {
+        synchronized (this) {
+            Cached c = hot.get(userId);
+            if (c != null && c.expiresAt() >= System.currentTimeMillis()) {
+                hits++;
+                return c.value();
+            }
+            reads++;
+        }
+
+        List<Recommendations> rows = jdbc.query(SELECT_SQL, (rs, i) -> read(rs, k), userId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public void put(Recommendations r) {
+        String inputs;
+        String items;
+        try {
+            inputs = mapper.writeValueAsString(r.inputs());
+            items = mapper.writeValueAsString(r.items());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize recommendations: " + e.getMessage());
+        }
+
+        jdbc.update(UPSERT_SQL, r.userId(), inputs, r.catalogFingerprint(), r.total(), items, r.computedAt());
+
+        synchronized (this) {
+            writes++;
+        }
+        remember(r);
+    }
+
+    /** Writes many results in one JDBC batch. */
+    public void putAll(List<Recommendations> all) {
+        if (all.isEmpty()) return;
+
+        List<Object[]> rows = new ArrayList<>(all.size());
+        for (Recommendations r : all) {
+            try {
+                rows.add(new Object[]{r.userId(), mapper.writeValueAsString(r.inputs()), r.catalogFingerprint(),
+                        r.total(), mapper.writeValueAsString(r.items()), r.computedAt()});
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to serialize recommendations: " + e.getMessage());
+            }
+        }
+        jdbc.batchUpdate(UPSERT_SQL, rows);
+
+        synchronized (this) {
+            writes += all.size();
+        }
+        for (Recommendations r : all) remember(r);
+    }
+
+    /** Users that have a stored result. */
+    public List<UUID> userIds() {
+        return jdbc.queryForList("select user_id from public.user_recommendations", UUID.class);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long lookups = hits + reads;
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("hotEntries", hot.size());
+        out.put("hotHits", hits);
+        out.put("tableReads", reads);
+        out.put("hotHitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+        out.put("writes", writes);
+        return out;
+    }
+
+    private synchronized void remember(Recommendations r) {
+        hot.put(r.userId(), new Cached(r, System.currentTimeMillis() + ttlSeconds * 1000));
+
+        Iterator<UUID> it = hot.keySet().iterator();
+        while (hot.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private Recommendations read(ResultSet rs, int maxItems) throws SQLException {
+        try {
+            return new Recommendations(
+                    rs.getObject("user_id", UUID.class),
+                    mapper.readValue(rs.getString("inputs"), Recommendations.Inputs.class),
+                    rs.getLong("catalog_fingerprint"),
+                    rs.getInt("total"),
+                    items(rs.getString("items"), maxItems),
+                    rs.getObject("computed_at", OffsetDateTime.class)
+            );
+        } catch (Exception e) {
+            throw new RuntimeException("Corrupt recommendations row: " + e.getMessage());
+        }
+    }
+
+    // the first maxItems elements of a JSON array, without parsing the rest
+    List<UniversityDiscoverResponse> items(String json, int maxItems) throws IOException {
+        if (maxItems == Integer.MAX_VALUE) return mapper.readValue(json, ITEMS);
+
+        List<UniversityDiscoverResponse> out = new ArrayList<>(Math.min(maxItems, 64));
+        try (JsonParser p = mapper.createParser(json)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) throw new IOException("items is not an array");
+            while (out.size() < maxItems && p.nextToken() == JsonToken.START_OBJECT) {
+                out.add(mapper.readValue(p, UniversityDiscoverResponse.class));
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,52 @@
+package com.aicounsellor.backend.universities;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import com.aicounsellor.backend.profile.UserProfile;
+import com.aicounsellor.backend.universities.dto.UniversityDiscoverResponse;
+
+/**
+ * A user's ranked discover result as stored in user_recommendations, with
+ * the scoring inputs and catalog it was computed from so a recompute can
+ * tell what changed. {@code total} is the candidate count before the
+ * maxItems cut.
+ */
+public record Recommendations(
+        UUID userId,
+        Inputs inputs,
+        long catalogFingerprint,
+        int total,
+        List<UniversityDiscoverResponse> items,
+        OffsetDateTime computedAt
+) {
+
+    public boolean truncated() {
+        return items.size() < total;
+    }
+
+    /** The profile fields scoring reads, and nothing else. */
+    public record Inputs(boolean onboarded, List<String> countries, Integer budget, double gpa, int notReady) {
+
+        public static Inputs of(UserProfile p) {
+            if (p == null) return new Inputs(false, List.of(), null, 0.0, 0);
+            return new Inputs(
+                    p.isOnboardingCompleted(),
+                    p.getPreferredCountries() != null ? Arrays.asList(p.getPreferredCountries()) : List.of(),
+                    p.getBudgetPerYear(),
+                    p.getGpa() != null ? p.getGpa() : 0.0,
+                    (UserProfile.isNotReady(p.getIeltsStatus()) ? 1 : 0)
+                            + (UserProfile.isNotReady(p.getGreStatus()) ? 1 : 0)
+                            + (UserProfile.isNotReady(p.getSopStatus()) ? 1 : 0)
+            );
+        }
+
+        /** Same countries and budget: the candidate set is unchanged, only the scores may differ. */
+        public boolean sameCandidates(Inputs other) {
+            return countries.equals(other.countries) && Objects.equals(budget, other.budget);
+        }
+    }
+}
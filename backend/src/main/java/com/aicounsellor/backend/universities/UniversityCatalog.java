@@ -0,0 +1,264 @@
+package com.aicounsellor.backend.universities;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * The universities table held in memory as an immutable {@link Snapshot}.
+ * Readers take the current snapshot without locking; a refresh builds a
+ * complete new snapshot and swaps the reference, so a reader sees either the
+ * old catalog or the new one, never a mix. Refreshes happen at startup, every
+ * {@code refreshSeconds} and on {@link CatalogChangedEvent}.
+ */
+@Component
+public class UniversityCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(UniversityCatalog.class);
+
+    private final UniversityRepository universityRepo;
+    private final ApplicationEventPublisher events;
+
+    @Value("${app.catalog.refreshSeconds:300}")
+    private long refreshSeconds;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private ScheduledExecutorService refresher;
+
+    private volatile long lastLoadMs = 0;
+
+    public UniversityCatalog(UniversityRepository universityRepo, ApplicationEventPublisher events) {
+        this.universityRepo = universityRepo;
+        this.events = events;
+    }
+
+    public Snapshot snapshot() {
+        Snapshot s = current.get();
+        return s != null ? s : loadIfAbsent();
+    }
+
+    // first request beat the startup load (or it failed): load inline, once
+    private synchronized Snapshot loadIfAbsent() {
+        Snapshot s = current.get();
+        return s != null ? s : refresh();
+    }
+
+    public synchronized Snapshot refresh() {
+        long start = System.currentTimeMillis();
+        Snapshot previous = current.get();
+
+        Snapshot next = Snapshot.ofEntries(universityRepo.findCatalogEntries(), previous == null ? 1 : previous.version() + 1);
+        current.set(next);
+
+        lastLoadMs = System.currentTimeMillis() - start;
+        log.info("catalog v{} loaded: {} entries in {}ms", next.version(), next.size(), lastLoadMs);
+
+        if (previous != null && previous.fingerprint() != next.fingerprint()) {
+            events.publishEvent(new CatalogReloadedEvent(next.version(), next.fingerprint()));
+        }
+        return next;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "university-catalog-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        log.debug("catalog changed: {}", event.reason());
+        refresh();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) refresher.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot s = current.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("loaded", s != null);
+        if (s == null) return out;
+
+        long bytes = s.estimatedBytes();
+        out.put("version", s.version());
+        out.put("fingerprint", Long.toHexString(s.fingerprint()));
+        out.put("entries", s.size());
+        out.put("countries", s.countries().size());
+        out.put("loadedAt", s.loadedAt().toString());
+        out.put("lastLoadMs", lastLoadMs);
+        out.put("estimatedBytes", bytes);
+        out.put("bytesPerEntry", s.size() == 0 ? 0 : bytes / s.size());
+        return out;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // keep serving the previous snapshot
+            log.warn("catalog refresh failed, keeping the previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * One immutable version of the catalog. Entries are sorted by yearly
+     * cost ascending, so scans see the same order whatever order the
+     * database returned them in; filtering is done on {@link CatalogColumns}.
+     */
+    public static final class Snapshot {
+
+        private static final Comparator<CatalogEntry> BY_COST = Comparator.comparingInt(CatalogEntry::yearlyCostUsd);
+
+        private final long version;
+        private final Instant loadedAt;
+        private final List<CatalogEntry> all;
+        private final Set<String> countries;
+        private final Map<UUID, CatalogEntry> byId;
+        private final long fingerprint;
+        private final CatalogColumns columns;
+
+        private Snapshot(long version, List<CatalogEntry> all) {
+            this.version = version;
+            this.loadedAt = Instant.now();
+            this.all = all;
+            this.fingerprint = fingerprint(all);
+            this.columns = new CatalogColumns(all);
+
+            Set<String> countries = new HashSet<>();
+            Map<UUID, CatalogEntry> ids = new HashMap<>(all.size() * 4 / 3 + 1);
+            for (CatalogEntry e : all) {
+                countries.add(e.country());
+                ids.put(e.id(), e);
+            }
+
+            this.countries = Collections.unmodifiableSet(countries);
+            this.byId = Collections.unmodifiableMap(ids);
+        }
+
+        public static Snapshot of(List<University> rows, long version) {
+            return ofEntries(rows.stream().map(CatalogEntry::of).toList(), version);
+        }
+
+        public static Snapshot ofEntries(List<CatalogEntry> rows, long version) {
+            // country/degree/field/difficulty repeat across rows: keep one String per distinct value
+            Map<String, String> shared = new HashMap<>();
+            List<CatalogEntry> entries = new ArrayList<>(rows.size());
+            for (CatalogEntry e : rows) {
+                entries.add(new CatalogEntry(
+                        e.id(),
+                        e.name(),
+                        dedupe(shared, e.country()),
+                        dedupe(shared, e.degree()),
+                        dedupe(shared, e.field()),
+                        e.yearlyCostUsd(),
+                        e.minGpa(),
+                        dedupe(shared, e.difficulty())
+                ));
+            }
+            entries.sort(BY_COST);
+            return new Snapshot(version, Collections.unmodifiableList(entries));
+        }
+
+        public long version() { return version; }
+
+        public Instant loadedAt() { return loadedAt; }
+
+        /**
+         * Content hash, independent of row order and of which node loaded it:
+         * equal on every node holding the same catalog, unlike {@link #version()}.
+         */
+        public long fingerprint() { return fingerprint; }
+
+        public int size() { return all.size(); }
+
+        public List<CatalogEntry> all() { return all; }
+
+        public Set<String> countries() { return countries; }
+
+        public CatalogEntry byId(UUID id) { return byId.get(id); }
+
+        CatalogColumns columns() { return columns; }
+
+        /**
+         * Rough retained size: entry objects, their UUIDs and names, the
+         * shared strings once, the list and id index slots and the scoring
+         * columns (compressed oops, 64-bit JVM).
+         */
+        public long estimatedBytes() {
+            long bytes = 0;
+            Map<String, Boolean> seen = new IdentityHashMap<>();
+            for (CatalogEntry e : all) {
+                bytes += 48;                          // record: header + 7 refs + int
+                bytes += 32;                          // UUID
+                bytes += e.minGpa() != null ? 16 : 0; // boxed Double
+                bytes += stringBytes(e.name());
+                for (String s : new String[]{e.country(), e.degree(), e.field(), e.difficulty()}) {
+                    if (s != null && seen.put(s, Boolean.TRUE) == null) bytes += stringBytes(s);
+                }
+                bytes += 4;                           // slot in all
+                bytes += 32 + 8;                      // byId: HashMap node + table slot
+            }
+            return bytes + columns.estimatedBytes();
+        }
+
+        private static long fingerprint(List<CatalogEntry> entries) {
+            long sum = entries.size();
+            for (CatalogEntry e : entries) {
+                long h = e.id().getMostSignificantBits() * 31 + e.id().getLeastSignificantBits();
+                h = h * 31 + Objects.hashCode(e.name());
+                h = h * 31 + Objects.hashCode(e.country());
+                h = h * 31 + Objects.hashCode(e.degree());
+                h = h * 31 + Objects.hashCode(e.field());
+                h = h * 31 + e.yearlyCostUsd();
+                h = h * 31 + Objects.hashCode(e.minGpa());
+                h = h * 31 + Objects.hashCode(e.difficulty());
+                // mix before summing so the order-independent sum does not cancel out
+                h ^= h >>> 33;
+                h *= 0xff51afd7ed558ccdL;
+                h ^= h >>> 33;
+                sum += h;
+            }
+            return sum;
+        }
+
+        private static String dedupe(Map<String, String> shared, String s) {
+            return s == null ? null : shared.computeIfAbsent(s, k -> k);
+        }
+
+        private static long stringBytes(String s) {
+            // String object + byte[] header + Latin-1 payload, 8-byte aligned
+            return s == null ? 0 : 24 + ((16 + s.length() + 7) & ~7L);
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.aicounsellor.backend.universities;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import com.aicounsellor.backend.universities.dto.DiscoverPage;
 import com.aicounsellor.backend.universities.dto.ShortlistResponse;
 import com.aicounsellor.backend.universities.dto.UniversityDiscoverResponse;
+import com.aicounsellor.backend.universities.dto.UniversitySearchResult;
 
 @RestController
 @RequestMapping("/universities")
@@ -19,12 +23,35 @@ public class UniversityController {
         this.service = service;
     }
 
+    // the whole stored ranking (the best app.recommendations.maxItems)
     @GetMapping("/discover")
     public List<UniversityDiscoverResponse> discover(Authentication auth) {
         UUID userId = (UUID) auth.getPrincipal();
         return service.discover(userId);
     }
 
+    // the same ranking a page at a time: pass nextCursor back as ?cursor=
+    @GetMapping("/discover/page")
+    public DiscoverPage discoverPage(
+            Authentication auth,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        UUID userId = (UUID) auth.getPrincipal();
+        return service.discoverPage(userId, cursor, limit);
+    }
+
+    // typo-tolerant name search, e.g. /universities/search?q=stanfrod
+    @GetMapping("/search")
+    public List<UniversitySearchResult> search(
+            Authentication auth,
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit
+    ) {
+        UUID userId = (UUID) auth.getPrincipal();
+        return service.search(userId, q, limit);
+    }
+
     @GetMapping("/my")
     public List<UserUniversity> my(Authentication auth) {
         UUID userId = (UUID) auth.getPrincipal();
@@ -48,4 +75,9 @@ public class UniversityController {
         UUID userId = (UUID) auth.getPrincipal();
         return service.unlock(userId, id);
     }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, Object>> invalidCursor(InvalidCursorException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
 }
@@ -0,0 +1,277 @@
+package com.aicounsellor.backend.universities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds catalog university names in free text (AI replies) in one pass:
+ * an Aho-Corasick automaton over every catalog name and its aliases, so the
+ * cost depends on the length of the text, not the size of the catalog.
+ * Text and names are normalized like {@link UniversitySearchIndex} and only
+ * whole words match; where mentions overlap the longest one wins, so
+ * "University of California Berkeley" is not also reported as
+ * "University of California".
+ * The automaton is immutable and rebuilt whenever the catalog changes.
+ */
+@Component
+public class UniversityNameMatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(UniversityNameMatcher.class);
+
+    // shorter names ("of", "st") are too likely to be ordinary words
+    private static final int MIN_NAME_LENGTH = 3;
+    private static final int MAX_ACRONYM_LENGTH = 8;
+
+    /** A catalog name found in the text; several rows can share one name. */
+    public record Mention(String name, List<UUID> ids) {}
+
+    private final UniversityCatalog catalog;
+    private volatile Automaton automaton;
+
+    public UniversityNameMatcher(UniversityCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        Thread t = new Thread(() -> {
+            try {
+                rebuild(catalog.snapshot());
+            } catch (RuntimeException e) {
+                // the first scan retries
+                log.warn("name matcher build failed: {}", e.getMessage());
+            }
+        }, "university-name-matcher");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @EventListener
+    public void onCatalogReloaded(CatalogReloadedEvent event) {
+        rebuild(catalog.snapshot());
+    }
+
+    /** Distinct catalog names mentioned in {@code text}, in order of first appearance. */
+    public List<Mention> find(String text) {
+        String norm = UniversitySearchIndex.normalize(text);
+        if (norm.isEmpty()) return List.of();
+        return automaton().find(" " + norm + " ");
+    }
+
+    public Map<String, Object> stats() {
+        Automaton a = automaton;
+        if (a == null) return Map.of("built", false);
+        return Map.of("built", true, "names", a.names.length, "nodes", a.size, "fingerprint", a.fingerprint);
+    }
+
+    private Automaton automaton() {
+        Automaton a = automaton;
+        return a != null ? a : rebuild(catalog.snapshot());
+    }
+
+    synchronized Automaton rebuild(UniversityCatalog.Snapshot snapshot) {
+        Automaton current = automaton;
+        if (current != null && current.fingerprint == snapshot.fingerprint()) return current;
+
+        long start = System.nanoTime();
+        Automaton built = Automaton.build(snapshot);
+        automaton = built;
+        log.debug("name matcher built: {} names, {} nodes in {}ms", built.names.length, built.size, (System.nanoTime() - start) / 1_000_000);
+        return built;
+    }
+
+    // "The Foo University (FOU)" -> "The Foo University", "Foo University", "FOU"; other
+    // parentheticals ("(Main Campus)", "(Paris)") are dropped, they would match ordinary words
+    static List<String> aliases(String name) {
+        List<String> out = new ArrayList<>(3);
+        if (name == null || name.isBlank()) return out;
+        String base = name.trim();
+        out.add(base);
+
+        int open = base.lastIndexOf('(');
+        if (open > 0 && base.endsWith(")")) {
+            String inner = base.substring(open + 1, base.length() - 1).trim();
+            if (isAcronym(inner)) out.add(inner);
+            base = base.substring(0, open).trim();
+            out.add(base);
+        }
+        if (base.regionMatches(true, 0, "the ", 0, 4)) {
+            out.add(base.substring(4));
+        }
+        return out;
+    }
+
+    // "MIT", "UCLA", "ETH", "KU10": one word, capitals and digits, starting with a capital
+    static boolean isAcronym(String s) {
+        if (s.length() < MIN_NAME_LENGTH || s.length() > MAX_ACRONYM_LENGTH) return false;
+        if (s.charAt(0) < 'A' || s.charAt(0) > 'Z') return false;
+        for (int i = 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9')) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Trie over " name " (blank-padded, so matches stop at word boundaries)
+     * with failure links; children are sibling lists, plus a direct table
+     * for the root, which is where most transitions land.
+     */
+    static final class Automaton {
+        final long fingerprint;
+        final String[] names;
+        final UUID[][] ids;
+        final int[] lengths;
+
+        int size = 1;
+        char[] label = new char[1024];
+        int[] child = new int[1024];
+        int[] sibling = new int[1024];
+        int[] fail = new int[1024];
+        int[] output = new int[1024];   // name index ending here, or -1
+        int[] next = new int[1024];     // nearest node on the failure chain with an output, or 0
+        final int[] rootNext = new int[128];
+
+        private Automaton(long fingerprint, String[] names, UUID[][] ids, int[] lengths) {
+            this.fingerprint = fingerprint;
+            this.names = names;
+            this.ids = ids;
+            this.lengths = lengths;
+            Arrays.fill(child, -1);
+            Arrays.fill(output, -1);
+            Arrays.fill(rootNext, -1);
+        }
+
+        static Automaton build(UniversityCatalog.Snapshot snapshot) {
+            Map<String, String> display = new LinkedHashMap<>();
+            Map<String, List<UUID>> byPattern = new HashMap<>();
+            for (CatalogEntry e : snapshot.all()) {
+                for (String alias : aliases(e.name())) {
+                    String p = UniversitySearchIndex.normalize(alias);
+                    if (p.length() < MIN_NAME_LENGTH) continue;
+                    display.putIfAbsent(p, e.name());
+                    List<UUID> rows = byPattern.computeIfAbsent(p, k -> new ArrayList<>(1));
+                    if (!rows.contains(e.id())) rows.add(e.id());
+                }
+            }
+
+            int n = display.size();
+            String[] names = new String[n];
+            UUID[][] ids = new UUID[n][];
+            int[] lengths = new int[n];
+            Automaton a = new Automaton(snapshot.fingerprint(), names, ids, lengths);
+
+            int i = 0;
+            for (Map.Entry<String, String> d : display.entrySet()) {
+                String padded = " " + d.getKey() + " ";
+                names[i] = d.getValue();
+                ids[i] = byPattern.get(d.getKey()).toArray(UUID[]::new);
+                lengths[i] = padded.length();
+                a.insert(padded, i++);
+            }
+            a.link();
+            return a;
+        }
+
+        private void insert(String pattern, int index) {
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int to = edge(node, c);
+                if (to < 0) {
+                    to = newNode(c);
+                    sibling[to] = child[node];
+                    child[node] = to;
+                    if (node == 0 && c < 128) rootNext[c] = to;
+                }
+                node = to;
+            }
+            output[node] = index;
+        }
+
+        // breadth-first, so a node's failure target is always linked before it
+        private void link() {
+            int[] queue = new int[size];
+            int head = 0, tail = 0;
+            for (int k = child[0]; k >= 0; k = sibling[k]) {
+                fail[k] = 0;
+                queue[tail++] = k;
+            }
+            while (head < tail) {
+                int u = queue[head++];
+                for (int v = child[u]; v >= 0; v = sibling[v]) {
+                    int f = fail[u];
+                    int to;
+                    while ((to = edge(f, label[v])) < 0 && f != 0) f = fail[f];
+                    fail[v] = to >= 0 ? to : 0;
+                    next[v] = output[fail[v]] >= 0 ? fail[v] : next[fail[v]];
+                    queue[tail++] = v;
+                }
+            }
+        }
+
+        List<Mention> find(String padded) {
+            // (start, end, name) of every match, then keep the longest of overlapping ones
+            List<int[]> hits = new ArrayList<>();
+            int state = 0;
+            for (int i = 0; i < padded.length(); i++) {
+                char c = padded.charAt(i);
+                int to;
+                while ((to = edge(state, c)) < 0 && state != 0) state = fail[state];
+                state = to >= 0 ? to : 0;
+
+                for (int s = output[state] >= 0 ? state : next[state]; s != 0; s = next[s]) {
+                    int name = output[s];
+                    hits.add(new int[] {i - lengths[name] + 1, i, name});
+                }
+            }
+            if (hits.isEmpty()) return List.of();
+
+            hits.sort((x, y) -> x[0] != y[0] ? Integer.compare(x[0], y[0]) : Integer.compare(y[1], x[1]));
+            Map<Integer, Mention> out = new LinkedHashMap<>();
+            int end = -1;
+            for (int[] h : hits) {
+                // neighbouring names may share the blank between them
+                if (h[0] < end) continue;
+                end = h[1];
+                out.computeIfAbsent(h[2], k -> new Mention(names[k], List.of(ids[k])));
+            }
+            return new ArrayList<>(out.values());
+        }
+
+        private int edge(int node, char c) {
+            if (node == 0 && c < 128) return rootNext[c];
+            for (int k = child[node]; k >= 0; k = sibling[k]) {
+                if (label[k] == c) return k;
+            }
+            return -1;
+        }
+
+        private int newNode(char c) {
+            if (size == label.length) {
+                int cap = size * 2;
+                label = Arrays.copyOf(label, cap);
+                child = Arrays.copyOf(child, cap);
+                sibling = Arrays.copyOf(sibling, cap);
+                fail = Arrays.copyOf(fail, cap);
+                output = Arrays.copyOf(output, cap);
+                next = Arrays.copyOf(next, cap);
+                Arrays.fill(child, size, cap, -1);
+                Arrays.fill(output, size, cap, -1);
+            }
+            label[size] = c;
+            return size++;
+        }
+    }
+}
@@ -3,8 +3,28 @@ package com.aicounsellor.backend.universities;
 import java.util.List;
 import java.util.UUID;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 public interface UniversityRepository extends JpaRepository<University, UUID> {
-    List<University> findByCountryIn(List<String> countries);
+
+    /**
+     * What {@link UniversityCatalog} loads: only the columns discover uses,
+     * built straight into {@link CatalogEntry} instead of managed entities.
+     * Read-only, so Postgres streams it through a cursor in fetch-size
+     * chunks instead of the driver buffering the whole table.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("""
+            select new com.aicounsellor.backend.universities.CatalogEntry(
+                   u.id, u.name, u.country, u.degree, u.field, u.yearlyCostUsd, u.minGpa, u.difficulty)
+              from University u
+            """)
+    List<CatalogEntry> findCatalogEntries();
 }
@@ -1,76 +1,405 @@
 package com.aicounsellor.backend.universities;
 
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import com.aicounsellor.backend.profile.UserContextChangedEvent;
 import com.aicounsellor.backend.profile.UserProfile;
 import com.aicounsellor.backend.profile.UserProfileRepository;
 import com.aicounsellor.backend.stage.StageService;
 import com.aicounsellor.backend.universities.dto.ShortlistResponse;
+import com.aicounsellor.backend.universities.dto.DiscoverPage;
 import com.aicounsellor.backend.universities.dto.UniversityDiscoverResponse;
+import com.aicounsellor.backend.universities.dto.UniversitySearchResult;
+
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class UniversityService {
 
+    private static final Logger log = LoggerFactory.getLogger(UniversityService.class);
+
     private final UniversityRepository universityRepo;
+    private final UniversityCatalog catalog;
+    private final RecommendationStore store;
+    private final UniversitySearchIndex searchIndex;
     private final UserUniversityRepository userUniRepo;
     private final UserProfileRepository profileRepo;
     private final StageService stageService;
+    private final ApplicationEventPublisher events;
+
+    // the order score() produces, on built responses
+    private static final Comparator<UniversityDiscoverResponse> RANKING = Comparator
+            .comparingInt((UniversityDiscoverResponse u) -> bucketRank(u.getBucket()))
+            .thenComparing(UniversityDiscoverResponse::getName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(UniversityDiscoverResponse::getId);
+
+    @Value("${app.recommendations.maxItems:1000}")
+    private int maxItems = 1000;
+
+    @Value("${app.recommendations.pageSize:50}")
+    private int pageSize;
+
+    @Value("${app.recommendations.maxPageSize:200}")
+    private int maxPageSize;
+
+    @Value("${app.search.limit:10}")
+    private int searchLimit;
+
+    @Value("${app.search.maxLimit:50}")
+    private int maxSearchLimit;
+
+    @Value("${app.recommendations.parallelism:0}")
+    private int parallelism;
+
+    @Value("${app.recommendations.parallelThreshold:100000}")
+    private int parallelThreshold = 100_000;
+
+    private static final int BATCH_CHUNK = 500;
+
+    // scoring pool, separate from the common pool; created on first use
+    private volatile ForkJoinPool pool;
+    private ExecutorService batch;
+    private final AtomicBoolean batchQueued = new AtomicBoolean();
 
     public UniversityService(
             UniversityRepository universityRepo,
+            UniversityCatalog catalog,
+            RecommendationStore store,
+            UniversitySearchIndex searchIndex,
             UserUniversityRepository userUniRepo,
             UserProfileRepository profileRepo,
-            StageService stageService
+            StageService stageService,
+            ApplicationEventPublisher events
     ) {
         this.universityRepo = universityRepo;
+        this.catalog = catalog;
+        this.store = store;
+        this.searchIndex = searchIndex;
         this.userUniRepo = userUniRepo;
         this.profileRepo = profileRepo;
         this.stageService = stageService;
+        this.events = events;
     }
 
     public List<UniversityDiscoverResponse> discover(UUID userId) {
-        UserProfile profile = profileRepo.findById(userId).orElse(null);
-        if (profile == null || !profile.isOnboardingCompleted()) {
+        Recommendations r = recommendations(userId);
+        if (!r.inputs().onboarded()) {
+            throw new RuntimeException("Complete onboarding first.");
+        }
+        return r.items();
+    }
+
+    /**
+     * One page of the stored ranking. Items are ordered by bucket, then name,
+     * then id, and the cursor is the last item's position in that order, so a
+     * recompute between pages neither repeats nor skips a university that
+     * kept its bucket. Only the best {@code maxItems} candidates are stored:
+     * {@code total} counts what can be paged through, {@code matched} every
+     * candidate, and {@code truncated} says whether the two differ.
+     */
+    public DiscoverPage discoverPage(UUID userId, String cursor, Integer limit) {
+        int size = Math.max(1, Math.min(limit != null ? limit : pageSize, maxPageSize));
+        Recommendations r = recommendations(userId);
+        if (!r.inputs().onboarded()) {
             throw new RuntimeException("Complete onboarding first.");
         }
+        List<UniversityDiscoverResponse> items = r.items();
+
+        int from = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            UniversityDiscoverResponse after = parseCursor(cursor);
+            // first item ranked after the cursor
+            int lo = 0, hi = items.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (RANKING.compare(items.get(mid), after) <= 0) lo = mid + 1;
+                else hi = mid;
+            }
+            from = lo;
+        }
+
+        int to = Math.min(items.size(), from + size);
+        List<UniversityDiscoverResponse> page = items.subList(from, to);
 
-        List<String> preferredCountries = profile.getPreferredCountries() != null
+        String next = to < items.size() ? cursorOf(page.get(page.size() - 1)) : null;
+        return new DiscoverPage(page, next, items.size(), r.total(), r.truncated());
+    }
+
+    /** Fuzzy name lookup; the user's preferred countries rank first among similar matches. */
+    public List<UniversitySearchResult> search(UUID userId, String q, Integer limit) {
+        if (q == null || q.isBlank()) return List.of();
+        int size = Math.max(1, Math.min(limit != null ? limit : searchLimit, maxSearchLimit));
+        String query = q.length() > 100 ? q.substring(0, 100) : q;
+
+        UserProfile profile = profileRepo.findById(userId).orElse(null);
+        List<String> preferred = profile != null && profile.getPreferredCountries() != null
                 ? Arrays.asList(profile.getPreferredCountries())
                 : List.of();
 
-        Integer budget = profile.getBudgetPerYear();
+        List<UniversitySearchResult> out = new ArrayList<>();
+        for (UniversitySearchIndex.Hit hit : searchIndex.search(query, preferred, size)) {
+            CatalogEntry u = hit.entry();
+            out.add(new UniversitySearchResult(u.id(), u.name(), u.country(), u.yearlyCostUsd(), u.difficulty(),
+                    hit.similarity()));
+        }
+        return out;
+    }
+
+    /** The best {@code k} for this user, e.g. the universities sent in the AI context. */
+    public List<UniversityDiscoverResponse> top(UUID userId, int k) {
+        // only the head of the stored ranking is parsed; a stale one takes the full recompute path
+        Recommendations r = store.head(userId, k);
+        if (r == null || r.catalogFingerprint() != catalog.snapshot().fingerprint()) {
+            r = recommendations(userId);
+        }
+        if (!r.inputs().onboarded()) {
+            throw new RuntimeException("Complete onboarding first.");
+        }
+        List<UniversityDiscoverResponse> items = r.items();
+        return items.subList(0, Math.min(items.size(), k));
+    }
+
+    /**
+     * Rescores the user's candidates if anything scoring depends on changed
+     * and stores the result. Only the changed part is redone: a profile edit
+     * that scoring ignores is a no-op, and a GPA or exam-status change
+     * rescores the stored candidates in place instead of re-filtering the
+     * catalog.
+     */
+    public void recalculateForUser(UUID userId) {
+        recalculate(userId, store.get(userId));
+    }
+
+    @EventListener
+    public void onUserContextChanged(UserContextChangedEvent event) {
+        // the change itself is already saved; do not fail the request over derived data
+        try {
+            recalculateForUser(event.userId());
+        } catch (RuntimeException e) {
+            log.warn("recommendation recalculation for {} failed: {}", event.userId(), e.getMessage());
+        }
+    }
+
+    public Map<String, Object> recommendationStats() {
+        return store.stats();
+    }
+
+    // stored result, recomputed first if the catalog changed since
+    private Recommendations recommendations(UUID userId) {
+        Recommendations r = store.get(userId);
+        if (r != null && r.catalogFingerprint() == catalog.snapshot().fingerprint()) {
+            return r;
+        }
+        return recalculate(userId, r);
+    }
+
+    private Recommendations recalculate(UUID userId, Recommendations previous) {
+        Recommendations.Inputs inputs = Recommendations.Inputs.of(profileRepo.findById(userId).orElse(null));
+        UniversityCatalog.Snapshot snapshot = catalog.snapshot();
 
-        List<University> unis = preferredCountries.isEmpty()
-                ? universityRepo.findAll()
-                : universityRepo.findByCountryIn(preferredCountries);
+        boolean sameCatalog = previous != null && previous.catalogFingerprint() == snapshot.fingerprint();
+        if (sameCatalog && previous.inputs().equals(inputs)) {
+            return previous;
+        }
 
-        // basic filters
-        if (budget != null) {
-            unis = unis.stream()
-                    .filter(u -> u.getYearlyCostUsd() <= budget + 15000) // allow some stretch
-                    .collect(Collectors.toList());
+        Recommendations next;
+        if (sameCatalog && previous.inputs().onboarded() && previous.inputs().sameCandidates(inputs)
+                && !previous.truncated()) {
+            // same candidates, new scores
+            List<CatalogEntry> candidates = new ArrayList<>(previous.items().size());
+            for (UniversityDiscoverResponse item : previous.items()) {
+                CatalogEntry e = snapshot.byId(item.getId());
+                if (e != null) candidates.add(e);
+            }
+            next = scoreCandidates(userId, inputs, snapshot.fingerprint(), candidates);
+        } else {
+            next = fresh(userId, inputs, snapshot);
         }
 
-        // scoring (simple)
-        double gpa = profile.getGpa() != null ? profile.getGpa() : 0.0;
+        store.put(next);
+        return next;
+    }
 
-        List<UniversityDiscoverResponse> out = new ArrayList<>();
-        for (University u : unis) {
-            String bucket = bucket(profile, u, gpa);
-            String acceptance = acceptanceChance(profile, u, gpa);
-            String risk = riskLevel(profile, u, gpa);
-            String reason = reason(profile, u, bucket, acceptance);
+    private Recommendations fresh(UUID userId, Recommendations.Inputs inputs, UniversityCatalog.Snapshot snapshot) {
+        if (!inputs.onboarded()) {
+            return new Recommendations(userId, inputs, snapshot.fingerprint(), 0, List.of(), OffsetDateTime.now());
+        }
+        return score(userId, inputs, snapshot);
+    }
+
+    /**
+     * Recomputes every stored result against the current catalog. Profiles
+     * are read and results written in chunks on the calling thread; the
+     * scoring of each chunk is spread over the scoring pool, one user per task.
+     */
+    public int recalculateAll() {
+        UniversityCatalog.Snapshot snapshot = catalog.snapshot();
+        List<UUID> users = store.userIds();
+        long start = System.currentTimeMillis();
+
+        for (int from = 0; from < users.size(); from += BATCH_CHUNK) {
+            List<UUID> chunk = users.subList(from, Math.min(users.size(), from + BATCH_CHUNK));
+            Map<UUID, UserProfile> profiles = new HashMap<>();
+            for (UserProfile p : profileRepo.findAllById(chunk)) profiles.put(p.getUserId(), p);
+
+            List<Recommendations.Inputs> inputs = new ArrayList<>(chunk.size());
+            for (UUID id : chunk) inputs.add(Recommendations.Inputs.of(profiles.get(id)));
+
+            store.putAll(scoreAll(chunk, inputs, snapshot));
+        }
+
+        log.info("recomputed recommendations for {} users in {}ms", users.size(), System.currentTimeMillis() - start);
+        return users.size();
+    }
+
+    /** Scores many users at once on the scoring pool; results in input order. */
+    List<Recommendations> scoreAll(List<UUID> userIds, List<Recommendations.Inputs> inputs, UniversityCatalog.Snapshot snapshot) {
+        Recommendations[] out = new Recommendations[userIds.size()];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(out.length);
+        for (int i = 0; i < out.length; i++) {
+            int at = i;
+            tasks.add(ForkJoinTask.adapt(() -> out[at] = fresh(userIds.get(at), inputs.get(at), snapshot)));
+        }
+        pool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        return Arrays.asList(out);
+    }
+
+    // a newer catalog invalidates every stored result; refresh them off the
+    // refresh thread, coalescing reloads that arrive while a batch is queued
+    @EventListener
+    public void onCatalogReloaded(CatalogReloadedEvent event) {
+        if (!batchQueued.compareAndSet(false, true)) return;
+        batch().execute(() -> {
+            batchQueued.set(false);
+            try {
+                recalculateAll();
+            } catch (RuntimeException e) {
+                // results stay correct: stale ones are recomputed lazily on read
+                log.warn("recommendation batch failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) pool.shutdownNow();
+        if (batch != null) batch.shutdownNow();
+    }
+
+    private ForkJoinPool pool() {
+        ForkJoinPool p = pool;
+        if (p == null) {
+            synchronized (this) {
+                if (pool == null) {
+                    int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+                    pool = new ForkJoinPool(threads, fjp -> {
+                        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(fjp);
+                        t.setName("discover-scoring-" + t.getPoolIndex());
+                        return t;
+                    }, null, false);
+                }
+                p = pool;
+            }
+        }
+        return p;
+    }
+
+    private synchronized ExecutorService batch() {
+        if (batch == null) {
+            batch = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "recommendations-batch");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return batch;
+    }
+
+    /**
+     * Full recompute: filter the catalog, rank, score the kept rows. Runs on
+     * the snapshot's primitive columns; the bucket rules are applied once per
+     * difficulty class instead of once per row.
+     */
+    Recommendations score(UUID userId, Recommendations.Inputs in, UniversityCatalog.Snapshot snapshot) {
+        // basic filters (allow some budget stretch)
+        Integer maxCost = in.budget() != null ? in.budget() + 15000 : null;
+
+        // bucket() reads only difficulty and GPA (same for every row), so one
+        // representative per difficulty class gives each class's rank
+        int[] rankByClass = new int[CatalogColumns.DIFFICULTY_CLASSES.length];
+        for (int c = 0; c < rankByClass.length; c++) {
+            CatalogEntry probe = new CatalogEntry(null, null, null, null, null, 0, null, CatalogColumns.DIFFICULTY_CLASSES[c]);
+            rankByClass[c] = bucketRank(bucket(in, probe));
+        }
+
+        // split the scan only for big catalogs, and not when already on a pool
+        // worker (a batch parallelizes across users instead)
+        ForkJoinPool scoring = snapshot.size() >= parallelThreshold && !ForkJoinTask.inForkJoinPool() ? pool() : null;
+        int minChunk = scoring == null ? 0 : Math.max(4096, snapshot.size() / (scoring.getParallelism() * 4));
+        CatalogColumns.Selection top = snapshot.columns().select(in.countries(), maxCost, rankByClass, maxItems,
+                scoring, minChunk);
+        return build(userId, in, snapshot.fingerprint(), top.entries(), top.total());
+    }
+
+    // Scores an explicit candidate list: the incremental rescore, and the
+    // reference the columnar path is tested against. Keeps the best maxItems
+    // in a bounded heap (worst on top), so a large list costs O(n log k).
+    Recommendations scoreCandidates(UUID userId, Recommendations.Inputs in, long fingerprint, List<CatalogEntry> unis) {
+        Comparator<CatalogEntry> order = Comparator
+                .comparingInt((CatalogEntry u) -> bucketRank(bucket(in, u)))
+                .thenComparing(CatalogColumns.TIE_BREAK);
+
+        List<CatalogEntry> kept;
+        if (unis.size() <= maxItems) {
+            kept = new ArrayList<>(unis);
+            kept.sort(order);
+        } else {
+            PriorityQueue<CatalogEntry> heap = new PriorityQueue<>(maxItems + 1, order.reversed());
+            for (CatalogEntry u : unis) {
+                if (heap.size() < maxItems) {
+                    heap.add(u);
+                } else if (order.compare(u, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(u);
+                }
+            }
+            kept = new ArrayList<>(heap);
+            kept.sort(order);
+        }
+
+        return build(userId, in, fingerprint, kept, unis.size());
+    }
+
+    // responses are built only for the rows that are kept
+    private Recommendations build(UUID userId, Recommendations.Inputs in, long fingerprint, List<CatalogEntry> kept, int total) {
+        List<UniversityDiscoverResponse> out = new ArrayList<>(kept.size());
+        for (CatalogEntry u : kept) {
+            String bucket = bucket(in, u);
+            String acceptance = acceptanceChance(in, u);
+            String risk = riskLevel(in, u);
+            String reason = reason(bucket);
 
             out.add(new UniversityDiscoverResponse(
-                    u.getId(),
-                    u.getName(),
-                    u.getCountry(),
-                    u.getYearlyCostUsd(),
-                    u.getDifficulty(),
+                    u.id(),
+                    u.name(),
+                    u.country(),
+                    u.yearlyCostUsd(),
+                    u.difficulty(),
                     bucket,
                     acceptance,
                     risk,
@@ -78,24 +407,30 @@ public class UniversityService {
             ));
         }
 
-        // sort: DREAM first then TARGET then SAFE
-        Map<String, Integer> rank = Map.of("DREAM", 1, "TARGET", 2, "SAFE", 3);
-        out.sort(Comparator.comparingInt(x -> rank.getOrDefault(x.getBucket(), 99)));
+        return new Recommendations(userId, in, fingerprint, total, out, OffsetDateTime.now());
+    }
 
-        return out;
+    // DREAM first then TARGET then SAFE
+    private static int bucketRank(String bucket) {
+        return switch (bucket) {
+            case "DREAM" -> 1;
+            case "TARGET" -> 2;
+            case "SAFE" -> 3;
+            default -> 99;
+        };
     }
 
-    private String bucket(UserProfile p, University u, double gpa) {
-        String diff = safe(u.getDifficulty()).toLowerCase();
+    private String bucket(Recommendations.Inputs in, CatalogEntry u) {
+        String diff = safe(u.difficulty());
 
-        boolean expensive = p.getBudgetPerYear() != null && u.getYearlyCostUsd() > p.getBudgetPerYear();
+        boolean expensive = in.budget() != null && u.yearlyCostUsd() > in.budget();
 
-        if ("high".equals(diff)) {
-            if (gpa >= 3.4) return "DREAM";
+        if ("high".equalsIgnoreCase(diff)) {
+            if (in.gpa() >= 3.4) return "DREAM";
             return "TARGET";
         }
 
-        if ("medium".equals(diff)) {
+        if ("medium".equalsIgnoreCase(diff)) {
             if (expensive) return "TARGET";
             return "TARGET";
         }
@@ -104,35 +439,33 @@ public class UniversityService {
         return "SAFE";
     }
 
-    private String acceptanceChance(UserProfile p, University u, double gpa) {
-        Double min = u.getMinGpa();
+    private String acceptanceChance(Recommendations.Inputs in, CatalogEntry u) {
+        Double min = u.minGpa();
         if (min == null) return "MEDIUM";
-        if (gpa >= min + 0.3) return "HIGH";
-        if (gpa >= min) return "MEDIUM";
+        if (in.gpa() >= min + 0.3) return "HIGH";
+        if (in.gpa() >= min) return "MEDIUM";
         return "LOW";
     }
 
-    private String riskLevel(UserProfile p, University u, double gpa) {
+    private String riskLevel(Recommendations.Inputs in, CatalogEntry u) {
         int risk = 0;
 
         // budget risk
-        if (p.getBudgetPerYear() != null && u.getYearlyCostUsd() > p.getBudgetPerYear()) risk += 1;
+        if (in.budget() != null && u.yearlyCostUsd() > in.budget()) risk += 1;
 
         // gpa risk
-        Double min = u.getMinGpa();
-        if (min != null && gpa < min) risk += 2;
+        Double min = u.minGpa();
+        if (min != null && in.gpa() < min) risk += 2;
 
-        // exam readiness risk
-        if (isNotReady(p.getIeltsStatus())) risk += 1;
-        if (isNotReady(p.getGreStatus())) risk += 1;
-        if (isNotReady(p.getSopStatus())) risk += 1;
+        // exam readiness risk (IELTS, GRE, SOP)
+        risk += in.notReady();
 
         if (risk >= 4) return "HIGH";
         if (risk >= 2) return "MEDIUM";
         return "LOW";
     }
 
-    private String reason(UserProfile p, University u, String bucket, String acceptance) {
+    private String reason(String bucket) {
         if ("DREAM".equals(bucket)) {
             return "Strong university fit but competitive; needs strong SOP & exam readiness.";
         }
@@ -142,13 +475,27 @@ public class UniversityService {
         return "Safe pick; high acceptance chances and easier profile match.";
     }
 
-    private boolean isNotReady(String s) {
-        if (s == null) return true;
-        String x = s.toLowerCase();
-        return x.contains("not") || x.contains("pending");
+    private String safe(String s) { return s == null ? "" : s; }
+
+    // cursor = base64url("BUCKET|id|name")
+    private static String cursorOf(UniversityDiscoverResponse u) {
+        String raw = u.getBucket() + "|" + u.getId() + "|" + (u.getName() == null ? "" : u.getName());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
     }
 
-    private String safe(String s) { return s == null ? "" : s; }
+    private static UniversityDiscoverResponse parseCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            UniversityDiscoverResponse probe = new UniversityDiscoverResponse();
+            probe.setBucket(parts[0]);
+            probe.setId(UUID.fromString(parts[1]));
+            probe.setName(parts[2].isEmpty() ? null : parts[2]);
+            return probe;
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid discover cursor");
+        }
+    }
 
     // ------------------------------
     // Shortlist / Lock / Unlock
@@ -178,6 +525,7 @@ public class UniversityService {
 
         userUniRepo.save(uu);
         stageService.recalculateStage(userId);
+        events.publishEvent(new UserContextChangedEvent(userId));
 
         return new ShortlistResponse("shortlisted", "University shortlisted.");
     }
@@ -191,6 +539,7 @@ public class UniversityService {
         userUniRepo.save(uu);
 
         stageService.recalculateStage(userId);
+        events.publishEvent(new UserContextChangedEvent(userId));
 
         return new ShortlistResponse("locked", "University locked. Application guidance unlocked.");
     }
@@ -204,6 +553,7 @@ public class UniversityService {
         userUniRepo.save(uu);
 
         stageService.recalculateStage(userId);
+        events.publishEvent(new UserContextChangedEvent(userId));
 
         return new ShortlistResponse("shortlisted",
                 "University unlocked. Warning: focus may reduce and application stage may lock again.");
@@ -230,13 +580,9 @@ public class UniversityService {
         userUniRepo.save(recent);
 
         stageService.recalculateStage(userId);
+        events.publishEvent(new UserContextChangedEvent(userId));
 
         return new ShortlistResponse("locked", "Locked your most recently shortlisted university.");
     }
 
-	public void recalculateForUser(UUID userId) {
-		// TODO Auto-generated method stub
-		
-	}
-
 }
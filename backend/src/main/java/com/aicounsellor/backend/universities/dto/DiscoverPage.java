@@ -0,0 +1,17 @@
+package com.aicounsellor.backend.universities.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class DiscoverPage {
+    private List<UniversityDiscoverResponse> items;
+    private String nextCursor;   // pass back as ?cursor= for the next page; null on the last one
+
+    private int total;           // items that can be paged through (the stored best maxItems)
+    private int matched;         // every candidate, including those cut by the cap
+    private boolean truncated;   // matched > total
+}
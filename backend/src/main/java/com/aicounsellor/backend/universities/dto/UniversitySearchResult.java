@@ -0,0 +1,19 @@
+package com.aicounsellor.backend.universities.dto;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UniversitySearchResult {
+    private UUID id;
+    private String name;
+    private String country;
+
+    private int yearlyCostUsd;
+    private String difficulty;
+
+    private double similarity;   // share of the query's (rarity-weighted) words found in the name, 0..1
+}
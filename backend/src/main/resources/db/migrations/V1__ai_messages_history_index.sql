@@ -0,0 +1,8 @@
+-- Run once per database, outside application startup and outside a transaction
+-- (CONCURRENTLY does not block writes to ai_messages while it builds):
+--   psql "$DB_URL" -v ON_ERROR_STOP=1 -f V1__ai_messages_history_index.sql
+-- A failed build leaves an INVALID index behind; drop it and run this again.
+
+-- keyset pagination of /ai/history
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ai_messages_user_created_id
+    ON public.ai_messages (user_id, created_at, id);
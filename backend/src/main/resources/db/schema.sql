@@ -0,0 +1,39 @@
+-- Idempotent; applied on startup via spring.sql.init (DB_INIT_MODE=never to skip).
+-- Only new, small tables belong here. Indexes on existing large tables are built
+-- CONCURRENTLY by the scripts in db/migrations, run by hand before the deploy.
+
+-- async chat jobs (POST /ai/chat?async=true), claimed by workers with FOR UPDATE SKIP LOCKED
+CREATE TABLE IF NOT EXISTS public.ai_chat_jobs (
+    id              uuid PRIMARY KEY,
+    user_id         uuid        NOT NULL,
+    message         text        NOT NULL,
+    idempotency_key text,
+    status          text        NOT NULL,   -- queued | running | done | failed
+    result          jsonb,
+    error           text,
+    attempts        int         NOT NULL DEFAULT 0,
+    locked_by       text,
+    run_after       timestamptz NOT NULL DEFAULT now(),
+    created_at      timestamptz NOT NULL DEFAULT now(),
+    started_at      timestamptz,
+    finished_at     timestamptz
+);
+
+CREATE INDEX IF NOT EXISTS idx_ai_chat_jobs_queued
+    ON public.ai_chat_jobs (run_after, created_at) WHERE status = 'queued';
+
+CREATE INDEX IF NOT EXISTS idx_ai_chat_jobs_running
+    ON public.ai_chat_jobs (started_at) WHERE status = 'running';
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_ai_chat_jobs_user_idempotency
+    ON public.ai_chat_jobs (user_id, idempotency_key) WHERE idempotency_key IS NOT NULL;
+
+-- materialized /universities/discover result per user, rewritten when the profile or catalog changes
+CREATE TABLE IF NOT EXISTS public.user_recommendations (
+    user_id             uuid PRIMARY KEY,
+    inputs              jsonb       NOT NULL,   -- scoring inputs taken from the profile
+    catalog_fingerprint bigint      NOT NULL,   -- UniversityCatalog snapshot the items were scored against
+    total               int         NOT NULL,   -- candidates before the maxItems cut
+    items               jsonb       NOT NULL,
+    computed_at         timestamptz NOT NULL
+);
@@ -0,0 +1,367 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Drives the job lifecycle against an in-memory stand-in for ai_chat_jobs
+ * that applies each statement the way its SQL reads. The SQL itself needs
+ * Postgres (FOR UPDATE SKIP LOCKED, ON CONFLICT); this covers the decisions
+ * around it.
+ */
+class AiChatJobServiceTest {
+
+    private final UUID user = UUID.randomUUID();
+    private final JobTable jdbc = new JobTable();
+    private final AtomicReference<Chat> chat = new AtomicReference<>((u, m, k) -> Map.of("reply", "hi " + m));
+    private final List<String> keys = new ArrayList<>();
+    private final AiChatJobService jobs = service();
+
+    @Test
+    void resubmitWithTheSameKeyReturnsTheFirstJob() {
+        Object first = jobs.submit(user, "hello", "k1").get("jobId");
+        assertEquals(first, jobs.submit(user, "hello", "k1").get("jobId"));
+        assertEquals(1, jdbc.rows.size());
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> jobs.submit(user, "something else", "k1"));
+        // without a key every submit is its own job
+        assertNotEquals(jobs.submit(user, "hello", null).get("jobId"), jobs.submit(user, "hello", null).get("jobId"));
+        assertEquals(3, jdbc.rows.size());
+    }
+
+    @Test
+    void claimHandsOutEachQueuedJobOnceOldestFirst() {
+        UUID a = id(jobs.submit(user, "a", null));
+        UUID b = id(jobs.submit(user, "b", null));
+
+        assertEquals(a, jdbc.row(claimedId(claim())).id);
+        assertEquals(b, jdbc.row(claimedId(claim())).id);
+        assertNull(claim());
+        assertEquals("running", jdbc.row(a).status);
+        assertEquals(1, jdbc.row(a).attempts);
+    }
+
+    @Test
+    void finishedTurnIsStoredWithItsResult() {
+        UUID id = id(jobs.submit(user, "there", null));
+        run(claim());
+
+        Map<String, Object> job = jobs.find(user, id);
+        assertEquals("done", job.get("status"));
+        assertEquals("hi there", ((JsonNode) job.get("result")).get("reply").asText());
+        assertTrue(AiChatJobService.isFinished(job));
+        // keyed by the job, so a reclaimed job replays the turn instead of rerunning it
+        assertEquals(List.of("job:" + id), keys);
+        assertNull(jobs.find(UUID.randomUUID(), id));
+    }
+
+    @Test
+    void failingTurnIsRetriedUpToTheAttemptCap() {
+        UUID id = id(jobs.submit(user, "x", "k"));
+        chat.set((u, m, k) -> {
+            throw new RuntimeException("provider down");
+        });
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            run(claim());
+            assertEquals(attempt < 3 ? "queued" : "failed", jdbc.row(id).status, "after attempt " + attempt);
+        }
+        assertNull(claim());
+        assertEquals("provider down", jdbc.row(id).error);
+        assertEquals(List.of("k", "k", "k"), keys);
+    }
+
+    @Test
+    void turnThatAppliedItsActionsIsNotRerun() {
+        UUID id = id(jobs.submit(user, "x", null));
+        chat.set((u, m, k) -> {
+            throw new TurnAppliedException("snapshot failed", new RuntimeException());
+        });
+
+        run(claim());
+        assertEquals("failed", jdbc.row(id).status);
+        assertNull(claim());
+    }
+
+    @Test
+    void overloadGivesTheAttemptBackAndWaits() {
+        UUID id = id(jobs.submit(user, "x", null));
+        chat.set((u, m, k) -> {
+            throw new AiOverloadedException("busy", 30);
+        });
+
+        run(claim());
+        JobTable.Row row = jdbc.row(id);
+        assertEquals("queued", row.status);
+        assertEquals(0, row.attempts);
+        assertTrue(row.runAfter.isAfter(OffsetDateTime.now().plusSeconds(20)));
+        assertNull(claim());
+    }
+
+    @Test
+    void staleJobIsReclaimedUntilItHasUsedItsAttempts() {
+        UUID id = id(jobs.submit(user, "x", null));
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            assertEquals(id, claimedId(claim()));
+            // the worker died: the row stays running and goes stale
+            jdbc.row(id).startedAt = OffsetDateTime.now().minusSeconds(121);
+            housekeep();
+            assertEquals(attempt < 3 ? "queued" : "failed", jdbc.row(id).status, "after attempt " + attempt);
+        }
+        assertEquals("worker lost the job 3 times", jdbc.row(id).error);
+    }
+
+    @Test
+    void lateResultOfAReclaimedJobIsDropped() {
+        UUID id = id(jobs.submit(user, "x", null));
+        Object mine = claim();
+        // another node took the job over meanwhile
+        jdbc.row(id).lockedBy = "other-node";
+
+        run(mine);
+        assertEquals("running", jdbc.row(id).status);
+        assertNull(jdbc.row(id).result);
+    }
+
+    private interface Chat {
+        Map<String, Object> chat(UUID userId, String message, String key);
+    }
+
+    private AiChatJobService service() {
+        AiService ai = new AiService(null, null, null, null, null, null, null, null, null, null, null, null, null, null) {
+            @Override
+            public Map<String, Object> chat(UUID userId, String message, String idempotencyKey) {
+                keys.add(idempotencyKey);
+                return chat.get().chat(userId, message, idempotencyKey);
+            }
+        };
+        AiChatJobService s = new AiChatJobService(jdbc, ai, new AiMetrics(new SimpleMeterRegistry()), new ObjectMapper());
+        ReflectionTestUtils.setField(s, "maxAttempts", 3);
+        ReflectionTestUtils.setField(s, "staleAfterSeconds", 120L);
+        ReflectionTestUtils.setField(s, "retentionHours", 24L);
+        return s;
+    }
+
+    private Object claim() {
+        return ReflectionTestUtils.invokeMethod(jobs, "claim");
+    }
+
+    private void run(Object job) {
+        ReflectionTestUtils.invokeMethod(jobs, "run", job);
+    }
+
+    private void housekeep() {
+        ReflectionTestUtils.invokeMethod(jobs, "housekeep");
+    }
+
+    private static UUID claimedId(Object job) {
+        return (UUID) ReflectionTestUtils.invokeMethod(job, "id");
+    }
+
+    private static UUID id(Map<String, Object> job) {
+        return (UUID) job.get("jobId");
+    }
+
+    // ai_chat_jobs in memory; each statement is recognised by its text and applied as written
+    private static class JobTable extends JdbcTemplate {
+
+        static class Row {
+            UUID id;
+            UUID userId;
+            String message;
+            String key;
+            String status = "queued";
+            String result;
+            String error;
+            int attempts;
+            String lockedBy;
+            OffsetDateTime createdAt = OffsetDateTime.now();
+            OffsetDateTime runAfter = createdAt;
+            OffsetDateTime startedAt;
+            OffsetDateTime finishedAt;
+
+            Map<String, Object> columns() {
+                Map<String, Object> c = new HashMap<>();
+                c.put("id", id);
+                c.put("user_id", userId);
+                c.put("message", message);
+                c.put("idempotency_key", key);
+                c.put("status", status);
+                c.put("result", result);
+                c.put("error", error);
+                c.put("attempts", attempts);
+                c.put("created_at", createdAt);
+                c.put("started_at", startedAt);
+                c.put("finished_at", finishedAt);
+                return c;
+            }
+        }
+
+        final List<Row> rows = new ArrayList<>();
+        private long tick = 0;
+
+        Row row(UUID id) {
+            return rows.stream().filter(r -> r.id.equals(id)).findFirst().orElseThrow();
+        }
+
+        @Override
+        public Map<String, Object> queryForMap(String sql, Object... args) {
+            if (!sql.contains("insert into public.ai_chat_jobs")) throw new UnsupportedOperationException(sql);
+            UUID userId = (UUID) args[1];
+            String key = (String) args[3];
+            Row row = key == null ? null : rows.stream()
+                    .filter(r -> r.userId.equals(userId) && key.equals(r.key)).findFirst().orElse(null);
+            if (row == null) {
+                row = new Row();
+                row.id = (UUID) args[0];
+                row.userId = userId;
+                row.message = (String) args[2];
+                row.key = key;
+                // distinct creation times keep the claim order deterministic
+                row.createdAt = row.createdAt.plusNanos(tick++ * 1000);
+                row.runAfter = row.createdAt.minusSeconds(1);
+                rows.add(row);
+            }
+            return Map.of("id", row.id, "message", row.message);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> mapper, Object... args) {
+            List<Row> hits = new ArrayList<>();
+            if (sql.contains("for update skip locked")) {
+                OffsetDateTime now = OffsetDateTime.now();
+                rows.stream()
+                        .filter(r -> r.status.equals("queued") && !r.runAfter.isAfter(now) && r.attempts < (int) args[1])
+                        .min(Comparator.comparing((Row r) -> r.runAfter).thenComparing(r -> r.createdAt))
+                        .ifPresent(r -> {
+                            r.status = "running";
+                            r.startedAt = now;
+                            r.attempts++;
+                            r.lockedBy = (String) args[0];
+                            hits.add(r);
+                        });
+            } else if (sql.contains("result::text as result")) {
+                rows.stream().filter(r -> r.id.equals(args[0]) && r.userId.equals(args[1])).forEach(hits::add);
+            } else {
+                throw new UnsupportedOperationException(sql);
+            }
+
+            List<T> out = new ArrayList<>();
+            try {
+                for (int i = 0; i < hits.size(); i++) out.add(mapper.mapRow(resultSet(hits.get(i).columns()), i));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return out;
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            OffsetDateTime now = OffsetDateTime.now();
+            int n = 0;
+            if (sql.contains("attempts = attempts - 1")) {
+                for (Row r : mine(args[1], args[2])) {
+                    r.status = "queued";
+                    r.lockedBy = null;
+                    r.startedAt = null;
+                    r.attempts--;
+                    r.runAfter = now.plusSeconds(((Number) args[0]).longValue());
+                    n++;
+                }
+            } else if (sql.contains("set status = 'done'")) {
+                for (Row r : mine(args[1], args[2])) {
+                    if (!r.status.equals("running")) continue;
+                    r.status = "done";
+                    r.result = (String) args[0];
+                    r.finishedAt = now;
+                    n++;
+                }
+            } else if (sql.contains("set status = ?, error = ?")) {
+                for (Row r : mine(args[3], args[4])) {
+                    r.status = (String) args[0];
+                    r.error = (String) args[1];
+                    r.lockedBy = null;
+                    r.finishedAt = (boolean) args[2] ? null : now;
+                    n++;
+                }
+            } else if (sql.contains("set status = 'failed'")) {
+                OffsetDateTime stale = now.minusSeconds((long) args[1]);
+                for (Row r : rows) {
+                    boolean lost = r.status.equals("queued")
+                            || (r.status.equals("running") && r.startedAt.isBefore(stale));
+                    if (r.attempts < (int) args[0] || !lost) continue;
+                    r.status = "failed";
+                    r.lockedBy = null;
+                    r.finishedAt = now;
+                    if (r.error == null) r.error = "worker lost the job " + r.attempts + " times";
+                    n++;
+                }
+            } else if (sql.contains("set status = 'queued', locked_by = null")) {
+                OffsetDateTime stale = now.minusSeconds((long) args[0]);
+                for (Row r : rows) {
+                    if (!r.status.equals("running") || !r.startedAt.isBefore(stale) || r.attempts >= (int) args[1]) continue;
+                    r.status = "queued";
+                    r.lockedBy = null;
+                    n++;
+                }
+            } else if (sql.contains("delete from public.ai_chat_jobs")) {
+                OffsetDateTime cutoff = now.minusHours((int) args[0]);
+                int before = rows.size();
+                rows.removeIf(r -> (r.status.equals("done") || r.status.equals("failed")) && r.finishedAt.isBefore(cutoff));
+                n = before - rows.size();
+            } else {
+                throw new UnsupportedOperationException(sql);
+            }
+            return n;
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> type) {
+            if (!sql.contains("count(*)")) throw new UnsupportedOperationException(sql);
+            return type.cast(rows.stream().filter(r -> r.status.equals("queued")).count());
+        }
+
+        private List<Row> mine(Object id, Object node) {
+            return rows.stream().filter(r -> r.id.equals(id) && Objects.equals(r.lockedBy, node)).toList();
+        }
+
+        private static ResultSet resultSet(Map<String, Object> columns) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        Object v = columns.get((String) args[0]);
+                        return switch (method.getName()) {
+                            case "getObject", "getString" -> v;
+                            case "getInt" -> v == null ? 0 : ((Number) v).intValue();
+                            default -> throw new UnsupportedOperationException(method.getName());
+                        };
+                    });
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.aicounsellor.backend.ai.dto.AiModelOutput;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class AiJsonParserTest {
+
+    private static final String MODEL_TEXT = """
+            ```json
+            {"reply": "Try \\"MIT\\"\\nand ETH \\u00e9cole", "actions": [{"type": "shortlist", "args": {"universityId": "42"}}]}
+            ```""";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AiJsonParser parser = new AiJsonParser();
+
+    @Test
+    void agreesWithTheTreeParserOnGeminiAndOpenAiBodies() throws Exception {
+        List<Map<String, Object>> bodies = List.of(
+                Map.of("usageMetadata", Map.of("promptTokenCount", 10),
+                        "candidates", List.of(Map.of("safetyRatings", List.of(Map.of("x", 1)),
+                                "content", Map.of("role", "model", "parts", List.of(Map.of("text", MODEL_TEXT)))))),
+                Map.of("id", "c1", "choices", List.of(Map.of("index", 0,
+                        "message", Map.of("role", "assistant", "content", MODEL_TEXT)))),
+                Map.of("choices", List.of(Map.of("message", Map.of("content",
+                        "{\"reply\": \"plain\", \"actions\": []}")))));
+
+        for (Map<String, Object> body : bodies) {
+            byte[] raw = mapper.writeValueAsBytes(body);
+            AiModelOutput expected = mapper.convertValue(legacyExtractJson(body), AiModelOutput.class);
+            assertEquals(expected, parser.parse(raw));
+        }
+    }
+
+    @Test
+    void unknownShapesFailLikeBefore() {
+        byte[] raw = "{\"error\": {\"message\": \"quota\"}}".getBytes(StandardCharsets.UTF_8);
+        RuntimeException e = assertThrows(RuntimeException.class, () -> parser.parse(raw));
+        assertEquals("Unknown AI response format", e.getMessage());
+    }
+
+    @Test
+    void readsTokenUsageFromEitherProvider() {
+        byte[] gemini = "{\"candidates\": [], \"usageMetadata\": {\"promptTokenCount\": 12, \"candidatesTokenCount\": 5}}"
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] openAi = "{\"usage\": {\"prompt_tokens\": 7, \"completion_tokens\": 3, \"total_tokens\": 10}}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(new AiJsonParser.TokenUsage(12, 5), parser.usage(gemini));
+        assertEquals(new AiJsonParser.TokenUsage(7, 3), parser.usage(openAi));
+        assertNull(parser.usage("{\"choices\": []}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // the map-walking parser this class replaced, kept as the reference
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> legacyExtractJson(Map<String, Object> raw) throws Exception {
+        String text = null;
+        if (raw.containsKey("candidates")) {
+            var candidates = (List<Map<String, Object>>) raw.get("candidates");
+            var content = (Map<String, Object>) candidates.get(0).get("content");
+            var parts = (List<Map<String, Object>>) content.get("parts");
+            text = String.valueOf(parts.get(0).get("text"));
+        }
+        if (text == null && raw.containsKey("choices")) {
+            var choices = (List<Map<String, Object>>) raw.get("choices");
+            var m0 = (Map<String, Object>) choices.get(0).get("message");
+            text = String.valueOf(m0.get("content"));
+        }
+        text = text.replace("```json", "").replace("```", "").trim();
+        return mapper.readValue(text, Map.class);
+    }
+}
@@ -0,0 +1,88 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import com.aicounsellor.backend.ai.dto.AiMessageView;
+
+class AiMessageWriterTest {
+
+    private final FlakyJdbc jdbc = new FlakyJdbc();
+    // not started: every enqueue writes inline, retries are driven by the test
+    private final AiMessageWriter writer = new AiMessageWriter(jdbc, 100, 10, 200, 2, 0);
+
+    private final UUID user = UUID.randomUUID();
+
+    @Test
+    void committedRowsLeaveTheOverlay() {
+        AiMessage m = writer.enqueue(user, "user", "hello");
+
+        assertEquals(List.of(m.getId()), jdbc.inserted);
+        assertTrue(writer.pendingFor(user).isEmpty());
+    }
+
+    @Test
+    void failedBatchIsParkedAndStaysVisible() {
+        jdbc.failing = true;
+        AiMessage m = writer.enqueue(user, "user", "hello");
+
+        assertEquals(2, jdbc.calls);
+        assertTrue(jdbc.inserted.isEmpty());
+        List<AiMessageView> visible = writer.pendingFor(user);
+        assertEquals(1, visible.size());
+        assertEquals(m.getId(), visible.get(0).getId());
+        assertEquals(1, writer.stats().get("parked"));
+        assertEquals(1L, writer.stats().get("failedRows"));
+    }
+
+    @Test
+    void parkedRowsAreWrittenOnceTheDatabaseRecovers() {
+        jdbc.failing = true;
+        AiMessage a = writer.enqueue(user, "user", "a");
+        AiMessage b = writer.enqueue(user, "assistant", "b");
+
+        writer.retryParked();
+        assertEquals(2, writer.stats().get("parked"));
+
+        jdbc.failing = false;
+        writer.retryParked();
+
+        assertEquals(List.of(a.getId(), b.getId()), jdbc.inserted);
+        assertEquals(0, writer.stats().get("parked"));
+        assertTrue(writer.pendingFor(user).isEmpty());
+    }
+
+    @Test
+    void enqueueAfterCommitRecreatesTheUsersOverlay() {
+        writer.enqueue(user, "user", "first");
+        jdbc.failing = true;
+        AiMessage second = writer.enqueue(user, "user", "second");
+
+        assertEquals(List.of(second.getId()), writer.pendingFor(user).stream().map(AiMessageView::getId).toList());
+    }
+
+    private static class FlakyJdbc extends JdbcTemplate {
+        volatile boolean failing;
+        int calls;
+        final List<UUID> inserted = new ArrayList<>();
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            calls++;
+            if (failing) throw new DataAccessResourceFailureException("connection refused");
+            for (T row : batchArgs) inserted.add(((AiMessage) row).getId());
+            return new int[][] {new int[batchArgs.size()]};
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class AiModelRouterTest {
+
+    private final UUID user = UUID.randomUUID();
+    private final AiJsonParser parser = new AiJsonParser();
+    private final Scripted gemini = new Scripted();
+    private final Scripted groq = new Scripted();
+
+    @Test
+    void slowPrimaryIsHedgedAndTheLoserCancelled() throws Exception {
+        AiModelRouter router = router("hedge");
+        gemini.reply = () -> Mono.delay(Duration.ofSeconds(5)).map(x -> body("gemini"));
+        groq.reply = () -> Mono.just(body("groq"));
+
+        long start = System.nanoTime();
+        byte[] out = router.generateRaw(user, "sys", "hi", Deadline.after(Duration.ofSeconds(10)));
+        long ms = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("groq", text(out));
+        // not before the hedge delay, and without waiting for the primary
+        assertTrue(ms >= 100 && ms < 2000, "took " + ms + "ms");
+        await(gemini.cancelled::get);
+        assertEquals(Map.of("requests", 1L, "fired", 1L, "wins", 1L, "currentDelayMs", 100L),
+                router.stats().get("hedge"));
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() throws Exception {
+        AiModelRouter router = router("hedge");
+        gemini.reply = () -> Mono.just(body("gemini"));
+        groq.reply = () -> Mono.just(body("groq"));
+
+        assertEquals("gemini", text(router.generateRaw(user, "sys", "hi", Deadline.after(Duration.ofSeconds(10)))));
+        Thread.sleep(200);
+        assertEquals(0, groq.calls.get());
+    }
+
+    @Test
+    void failedPrimaryHedgesWithoutWaitingForTheDelay() {
+        AiModelRouter router = router("hedge");
+        ReflectionTestUtils.setField(router, "hedgeInitialDelayMs", 5000L);
+        gemini.reply = () -> Mono.error(new RuntimeException("503"));
+        groq.reply = () -> Mono.just(body("groq"));
+
+        long start = System.nanoTime();
+        assertEquals("groq", text(router.generateRaw(user, "sys", "hi", Deadline.after(Duration.ofSeconds(10)))));
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+    }
+
+    @Test
+    void hedgeDelayFollowsThePrimarysRecentLatency() {
+        AiModelRouter router = router("hedge");
+        ReflectionTestUtils.setField(router, "hedgeMinDelayMs", 1L);
+        gemini.reply = () -> Mono.delay(Duration.ofMillis(20)).map(x -> body("gemini"));
+        // a failing secondary ranks last, so every call lands on gemini's window
+        groq.reply = () -> Mono.error(new RuntimeException("503"));
+
+        for (int i = 0; i < 20; i++) {
+            router.generateRaw(user, "sys", "hi", Deadline.after(Duration.ofSeconds(10)));
+        }
+
+        @SuppressWarnings("unchecked")
+        long delay = (long) ((Map<String, Object>) router.stats().get("hedge")).get("currentDelayMs");
+        // p95 of ~20ms calls instead of the 100ms used before there were enough samples
+        assertTrue(delay >= 15 && delay < 100, "delay " + delay);
+    }
+
+    @Test
+    void spentBudgetStopsTheFallback() {
+        AiModelRouter router = router("auto");
+        // gemini hangs; groq would answer, but only after the deadline has passed
+        groq.reply = () -> Mono.just(body("groq"));
+
+        long start = System.nanoTime();
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> router.generateRaw(user, "sys", "hi", Deadline.after(Duration.ofMillis(150))));
+        long ms = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(e.getMessage().contains("deadline exceeded"), e.getMessage());
+        assertTrue(ms >= 140 && ms < 2000, "took " + ms + "ms");
+        assertEquals(0, groq.calls.get());
+    }
+
+    @Test
+    void fallbackRunsOnWhatIsLeftOfTheBudget() {
+        AiModelRouter router = router("auto");
+        gemini.reply = () -> Mono.error(new RuntimeException("503"));
+        groq.reply = () -> Mono.delay(Duration.ofMillis(50)).map(x -> body("groq"));
+
+        assertEquals("groq", text(router.generateRaw(user, "sys", "hi", Deadline.after(Duration.ofSeconds(5)))));
+    }
+
+    @Test
+    void streamFailsWhenTokensStopComing() {
+        AiModelRouter router = router("auto");
+        ReflectionTestUtils.setField(router, "streamIdleTimeoutMs", 100L);
+        gemini.stream = () -> Flux.concat(Flux.just("a"), Flux.never());
+        groq.stream = () -> Flux.just("x");
+
+        long start = System.nanoTime();
+        List<String> out = collect(router.streamText(user, "sys", "hi", Deadline.after(Duration.ofSeconds(10))));
+        long ms = (System.nanoTime() - start) / 1_000_000;
+
+        // tokens already reached the client, so no switch to groq mid-reply
+        assertEquals(List.of("a", "!TimeoutException"), out);
+        assertTrue(ms < 2000, "took " + ms + "ms");
+        assertEquals(0, groq.calls.get());
+    }
+
+    @Test
+    void steadyStreamStillEndsAtTheDeadline() throws Exception {
+        AiModelRouter router = router("auto");
+        gemini.stream = () -> Flux.interval(Duration.ofMillis(20)).map(i -> "t");
+
+        long start = System.nanoTime();
+        List<String> out = collect(router.streamText(user, "sys", "hi", Deadline.after(Duration.ofMillis(200))));
+        long ms = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("!TimeoutException", out.get(out.size() - 1));
+        assertTrue(out.size() > 2, "tokens " + out);
+        assertTrue(ms >= 150 && ms < 2000, "took " + ms + "ms");
+        await(gemini.cancelled::get);
+    }
+
+    @Test
+    void streamFallsBackUntilTheFirstToken() {
+        AiModelRouter router = router("auto");
+        gemini.stream = () -> Flux.error(new RuntimeException("503"));
+        groq.stream = () -> Flux.just("x", "y");
+
+        assertEquals(List.of("x", "y"), collect(router.streamText(user, "sys", "hi", Deadline.after(Duration.ofSeconds(5)))));
+    }
+
+    // tokens, then "!<exception>" if the stream failed
+    private static List<String> collect(Flux<String> stream) {
+        return stream.onErrorResume(e -> Flux.just("!" + e.getClass().getSimpleName()))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+    }
+
+    private AiModelRouter router(String provider) {
+        AiAdmissionController admission = new AiAdmissionController(new MockEnvironment());
+        ReflectionTestUtils.setField(admission, "maxConcurrent", 8);
+        ReflectionTestUtils.setField(admission, "maxQueued", 64);
+        ReflectionTestUtils.setField(admission, "maxQueuedPerUser", 2);
+        ReflectionTestUtils.setField(admission, "maxWaitMs", 5000L);
+        ReflectionTestUtils.setField(admission, "retryAfterSeconds", 2L);
+
+        ProviderHealthRegistry health = new ProviderHealthRegistry();
+        ReflectionTestUtils.setField(health, "windowSize", 20);
+        ReflectionTestUtils.setField(health, "minCalls", 5);
+        ReflectionTestUtils.setField(health, "errorRateThreshold", 0.5);
+        ReflectionTestUtils.setField(health, "openMillis", 30000L);
+        ReflectionTestUtils.setField(health, "ewmaAlpha", 0.2);
+
+        AiModelRouter router = new AiModelRouter(geminiClient(), groqClient(), null, health, admission,
+                new ResponseRecorder(""), parser, new AiMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(router, "provider", provider);
+        ReflectionTestUtils.setField(router, "defaultDeadlineMs", 20000L);
+        ReflectionTestUtils.setField(router, "hedgePercentile", 95.0);
+        ReflectionTestUtils.setField(router, "hedgeMinDelayMs", 50L);
+        ReflectionTestUtils.setField(router, "hedgeMaxDelayMs", 8000L);
+        ReflectionTestUtils.setField(router, "hedgeInitialDelayMs", 100L);
+        ReflectionTestUtils.setField(router, "hedgeMinSamples", 20);
+        ReflectionTestUtils.setField(router, "streamIdleTimeoutMs", 15000L);
+        return router;
+    }
+
+    // what one fake provider answers, and what was done to it
+    private static final class Scripted {
+        volatile Supplier<Mono<byte[]>> reply = Mono::never;
+        volatile Supplier<Flux<String>> stream = Flux::never;
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        Mono<byte[]> generate() {
+            return Mono.defer(() -> {
+                calls.incrementAndGet();
+                return reply.get();
+            }).doOnCancel(() -> cancelled.set(true));
+        }
+
+        Flux<String> streamText() {
+            return Flux.defer(() -> {
+                calls.incrementAndGet();
+                return stream.get();
+            }).doOnCancel(() -> cancelled.set(true));
+        }
+    }
+
+    private GeminiClient geminiClient() {
+        GeminiClient client = new GeminiClient(parser, 1000, 1000, "http://localhost:9") {
+            @Override
+            public Mono<byte[]> generate(String systemPrompt, String userPrompt) {
+                return gemini.generate();
+            }
+
+            @Override
+            public Flux<String> streamText(String systemPrompt, String userPrompt) {
+                return gemini.streamText();
+            }
+        };
+        // metrics tag calls with the model
+        ReflectionTestUtils.setField(client, "model", "gemini-test");
+        return client;
+    }
+
+    private GroqClient groqClient() {
+        GroqClient client = new GroqClient(parser, 1000, 1000, "http://localhost:9") {
+            @Override
+            public Mono<byte[]> generate(String systemPrompt, String userPrompt) {
+                return groq.generate();
+            }
+
+            @Override
+            public Flux<String> streamText(String systemPrompt, String userPrompt) {
+                return groq.streamText();
+            }
+        };
+        ReflectionTestUtils.setField(client, "model", "groq-test");
+        return client;
+    }
+
+    private static byte[] body(String text) {
+        return ("{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + text + "\"}]}}]}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String text(byte[] raw) {
+        return parser.extractText(raw);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long until = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > until) throw new AssertionError("timed out");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.aicounsellor.backend.profile.UserContextChangedEvent;
+
+class AiResponseCacheTest {
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        AiResponseCache cache = cache(2, 600);
+        cache.put(alice, "a", body("A"), 100);
+        cache.put(alice, "b", body("B"), 100);
+
+        // touching "a" makes "b" the eldest
+        assertArrayEquals(body("A"), cache.get("a"));
+        cache.put(bob, "c", body("C"), 100);
+
+        assertNull(cache.get("b"));
+        assertArrayEquals(body("A"), cache.get("a"));
+        assertArrayEquals(body("C"), cache.get("c"));
+        assertEquals(1L, cache.stats().get("evictions"));
+        assertEquals(2, cache.stats().get("entries"));
+    }
+
+    @Test
+    void expiredEntryIsAMiss() {
+        AiResponseCache cache = cache(10, 0);
+        cache.put(alice, "a", body("A"), 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+
+        // written with a zero TTL: gone as soon as the clock moves
+        long until = System.currentTimeMillis() + 2;
+        while (System.currentTimeMillis() < until) Thread.onSpinWait();
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.stats().get("entries"));
+        assertEquals(0L, cache.stats().get("estimatedBytes"));
+    }
+
+    @Test
+    void contextChangeDropsOnlyThatUsersEntries() {
+        AiResponseCache cache = cache(10, 600);
+        cache.put(alice, "a1", body("A1"), 100);
+        cache.put(alice, "a2", body("A2"), 100);
+        cache.put(bob, "b1", body("B1"), 100);
+
+        cache.onUserContextChanged(new UserContextChangedEvent(alice));
+
+        assertNull(cache.get("a1"));
+        assertNull(cache.get("a2"));
+        assertArrayEquals(body("B1"), cache.get("b1"));
+        assertEquals(1, cache.stats().get("entries"));
+    }
+
+    @Test
+    void hitsCountTheProviderTimeTheySaved() {
+        AiResponseCache cache = cache(10, 600);
+        cache.put(alice, "a", body("A"), 250);
+        cache.get("a");
+        cache.get("a");
+        cache.get("missing");
+
+        assertEquals(2L, cache.stats().get("hits"));
+        assertEquals(1L, cache.stats().get("misses"));
+        assertEquals(500L, cache.stats().get("savedProviderLatencyMs"));
+    }
+
+    @Test
+    void keyIgnoresMapOrderAndMessageNoise() {
+        AiResponseCache cache = cache(10, 600);
+        Map<String, Object> ordered = new LinkedHashMap<>();
+        ordered.put("stage", 2);
+        ordered.put("gpa", 3.4);
+
+        String key = cache.key("sys", ordered, "  What NEXT?? ");
+        assertEquals(key, cache.key("sys", new TreeMap<>(ordered), "what next"));
+        assertNotEquals(key, cache.key("sys", Map.of("stage", 3, "gpa", 3.4), "what next"));
+        assertNotEquals(key, cache.key("other", ordered, "what next"));
+    }
+
+    private static AiResponseCache cache(int maxEntries, long ttlSeconds) {
+        AiResponseCache cache = new AiResponseCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", ttlSeconds);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        return cache;
+    }
+
+    private static byte[] body(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
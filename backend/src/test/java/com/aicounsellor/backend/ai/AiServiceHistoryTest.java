@@ -0,0 +1,131 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.aicounsellor.backend.ai.dto.AiMessageView;
+import com.aicounsellor.backend.universities.InvalidCursorException;
+
+class AiServiceHistoryTest {
+
+    private static final OffsetDateTime T0 = OffsetDateTime.of(2026, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    private final UUID user = UUID.randomUUID();
+    private final List<AiMessageView> stored = new ArrayList<>();
+    // the database is down: every enqueued row stays in the write-behind overlay
+    private final AiMessageWriter writer = new AiMessageWriter(new DownJdbc(), 100, 10, 200, 1, 0);
+    private final AiService service = service();
+
+    @Test
+    void cursorsWalkEveryRowOnceIncludingSameTimestampTies() {
+        for (int i = 0; i < 7; i++) {
+            // pairs share a timestamp, so the id decides their order
+            stored.add(new AiMessageView(UUID.randomUUID(), "user", "m" + i, T0.plusSeconds(i / 2)));
+        }
+
+        List<AiMessageView> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            Map<String, Object> page = service.getHistory(user, cursor, 3);
+            seen.addAll(items(page));
+            cursor = (String) page.get("nextCursor");
+            pages++;
+        } while (cursor != null);
+
+        List<AiMessageView> expected = new ArrayList<>(stored);
+        expected.sort(AiMessageWriter.NEWEST_FIRST);
+        assertEquals(expected, seen);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void unsavedRowsJoinTheFirstPageOnly() {
+        for (int i = 0; i < 4; i++) {
+            stored.add(new AiMessageView(UUID.randomUUID(), "user", "old" + i, T0.plusSeconds(i)));
+        }
+        AiMessage pending = writer.enqueue(user, "user", "just sent");
+
+        Map<String, Object> first = service.getHistory(user, null, 2);
+        assertEquals(List.of("just sent", "old3"), items(first).stream().map(AiMessageView::getContent).toList());
+
+        Map<String, Object> second = service.getHistory(user, (String) first.get("nextCursor"), 10);
+        assertEquals(List.of("old2", "old1", "old0"), items(second).stream().map(AiMessageView::getContent).toList());
+        assertNull(second.get("nextCursor"));
+        assertEquals(pending.getId(), items(first).get(0).getId());
+    }
+
+    @Test
+    void rowInBothTheTableAndTheOverlayIsListedOnce() {
+        AiMessage m = writer.enqueue(user, "assistant", "hello");
+        stored.add(new AiMessageView(m.getId(), m.getRole(), m.getContent(), m.getCreatedAt()));
+
+        assertEquals(1, items(service.getHistory(user, null, 10)).size());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(InvalidCursorException.class, () -> service.getHistory(user, "no-comma", 10));
+        assertThrows(InvalidCursorException.class, () -> service.getHistory(user, "yesterday," + UUID.randomUUID(), 10));
+        assertThrows(InvalidCursorException.class, () -> service.getHistory(user, T0.toInstant() + ",42", 10));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AiMessageView> items(Map<String, Object> page) {
+        return (List<AiMessageView>) page.get("items");
+    }
+
+    private AiService service() {
+        AiService s = new AiService(null, null, null, null, null, null, null, repository(), writer,
+                null, null, null, null, null);
+        ReflectionTestUtils.setField(s, "historyPageSize", 50);
+        ReflectionTestUtils.setField(s, "historyMaxPageSize", 200);
+        return s;
+    }
+
+    // findLatest / findBefore over the list, ordered like the (created_at, id) index
+    private AiMessageRepository repository() {
+        return (AiMessageRepository) Proxy.newProxyInstance(
+                AiMessageRepository.class.getClassLoader(), new Class<?>[]{AiMessageRepository.class},
+                (proxy, method, args) -> {
+                    List<AiMessageView> rows = new ArrayList<>(stored);
+                    rows.sort(AiMessageWriter.NEWEST_FIRST);
+                    Limit limit;
+                    switch (method.getName()) {
+                        case "findLatest" -> limit = (Limit) args[1];
+                        case "findBefore" -> {
+                            AiMessageView cursor = new AiMessageView((UUID) args[2], null, null, (OffsetDateTime) args[1]);
+                            rows.removeIf(v -> AiMessageWriter.NEWEST_FIRST.compare(v, cursor) <= 0);
+                            limit = (Limit) args[3];
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                    return new ArrayList<>(rows.subList(0, Math.min(rows.size(), limit.max())));
+                });
+    }
+
+    private static class DownJdbc extends JdbcTemplate {
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            throw new DataAccessResourceFailureException("connection refused");
+        }
+    }
+}
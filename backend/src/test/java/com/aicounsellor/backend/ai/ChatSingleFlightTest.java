@@ -0,0 +1,153 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ChatSingleFlightTest {
+
+    private final ChatSingleFlight flight = singleFlight();
+
+    @Test
+    void concurrentDuplicatesShareOneExecution() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, Object> answer = Map.of("reply", "hi");
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, Object>> first = pool.submit(() -> flight.run("k", null, false, () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return new ChatSingleFlight.Outcome(answer, true);
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            Future<Map<String, Object>> second = pool.submit(() -> flight.run("k", null, false, () -> {
+                calls.incrementAndGet();
+                return new ChatSingleFlight.Outcome(Map.of("reply", "second"), true);
+            }));
+
+            // let the duplicate reach the in-flight entry before the first finishes
+            while (((Number) flight.stats().get("coalesced")).intValue() == 0) Thread.sleep(5);
+            release.countDown();
+
+            assertSame(answer, first.get(5, TimeUnit.SECONDS));
+            assertSame(answer, second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void keyedResultIsReplayedToRetries() {
+        AtomicInteger calls = new AtomicInteger();
+        Map<String, Object> answer = Map.of("reply", "hi");
+
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> result = flight.run("idem:1", "h1", true, () -> {
+                calls.incrementAndGet();
+                return new ChatSingleFlight.Outcome(answer, true);
+            });
+            assertSame(answer, result);
+        }
+        assertEquals(1, calls.get());
+        assertEquals(2L, flight.stats().get("replayed"));
+    }
+
+    @Test
+    void duplicateThatMissedBothEntriesDoesNotRerun() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Map<String, Object> answer = Map.of("reply", "hi");
+        CountDownLatch claiming = new CountDownLatch(1);
+        CountDownLatch firstDone = new CountDownLatch(1);
+
+        // hold the duplicate after its replay lookup missed, just before it claims the key
+        Thread duplicate = new Thread(() -> flight.run("idem:5", "h", true, () -> {
+            calls.incrementAndGet();
+            return new ChatSingleFlight.Outcome(Map.of("reply", "rerun"), true);
+        }));
+        ReflectionTestUtils.setField(flight, "inFlight", new ConcurrentHashMap<String, Object>() {
+            @Override
+            public Object putIfAbsent(String key, Object value) {
+                if (Thread.currentThread() == duplicate) {
+                    claiming.countDown();
+                    await(firstDone);
+                }
+                return super.putIfAbsent(key, value);
+            }
+        });
+
+        duplicate.start();
+        assertTrue(claiming.await(5, TimeUnit.SECONDS));
+        Map<String, Object> first = flight.run("idem:5", "h", true, () -> {
+            calls.incrementAndGet();
+            return new ChatSingleFlight.Outcome(answer, true);
+        });
+        firstDone.countDown();
+        duplicate.join(5000);
+
+        assertSame(answer, first);
+        assertEquals(1, calls.get());
+        assertEquals(1L, flight.stats().get("replayed"));
+    }
+
+    @Test
+    void fallbackIsNotReplayed() {
+        Map<String, Object> fallback = flight.run("idem:2", "h", true,
+                () -> new ChatSingleFlight.Outcome(Map.of("reply", "warming up, retry"), false));
+        Map<String, Object> retry = flight.run("idem:2", "h", true,
+                () -> new ChatSingleFlight.Outcome(Map.of("reply", "real answer"), true));
+
+        assertEquals("warming up, retry", fallback.get("reply"));
+        assertEquals("real answer", retry.get("reply"));
+    }
+
+    @Test
+    void keyReusedWithDifferentRequestIsRejected() {
+        flight.run("idem:3", "h1", true, () -> new ChatSingleFlight.Outcome(Map.of("reply", "a"), true));
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> flight.run("idem:3", "h2", true,
+                () -> new ChatSingleFlight.Outcome(Map.of("reply", "b"), true)));
+    }
+
+    @Test
+    void failureReachesCallerAndIsNotRemembered() {
+        assertThrows(IllegalStateException.class, () -> flight.run("idem:4", "h", true, () -> {
+            throw new IllegalStateException("provider down");
+        }));
+        Map<String, Object> retry = flight.run("idem:4", "h", true,
+                () -> new ChatSingleFlight.Outcome(Map.of("reply", "ok"), true));
+        assertEquals("ok", retry.get("reply"));
+    }
+
+    private static ChatSingleFlight singleFlight() {
+        ChatSingleFlight f = new ChatSingleFlight();
+        ReflectionTestUtils.setField(f, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(f, "maxEntries", 100);
+        return f;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+class FairAdmissionQueueTest {
+
+    private final FairAdmissionQueue queue = new FairAdmissionQueue("test", 1, 10, 5, 2);
+    private final List<String> admittedOrder = new CopyOnWriteArrayList<>();
+
+    @Test
+    void releasedPermitsGoRoundRobinAcrossUsers() throws Exception {
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        queue.acquire(alice, Duration.ZERO);
+
+        // alice queues twice before bob queues once
+        Thread a1 = waitFor(alice, "a1", 1);
+        Thread a2 = waitFor(alice, "a2", 2);
+        Thread b1 = waitFor(bob, "b1", 3);
+
+        for (int served = 1; served <= 3; served++) {
+            queue.release();
+            int expected = served;
+            await(() -> admittedOrder.size() == expected);
+        }
+        for (Thread t : List.of(a1, a2, b1)) t.join(1000);
+
+        assertEquals(List.of("a1", "b1", "a2"), admittedOrder);
+        assertEquals(1, queue.snapshot().get("inUse"));
+        assertEquals(0, queue.snapshot().get("queued"));
+    }
+
+    @Test
+    void waiterPastItsDeadlineIsRejectedAndLeavesTheQueue() {
+        queue.acquire(UUID.randomUUID(), Duration.ZERO);
+
+        AiOverloadedException e = assertThrows(AiOverloadedException.class,
+                () -> queue.acquire(UUID.randomUUID(), Duration.ofMillis(50)));
+        assertTrue(e.getMessage().contains("wait time exceeded"));
+        assertEquals(0, queue.snapshot().get("queued"));
+        assertEquals(1L, queue.snapshot().get("rejected"));
+
+        // the expired waiter is not handed the permit
+        queue.release();
+        assertEquals(0, queue.snapshot().get("inUse"));
+        queue.acquire(UUID.randomUUID(), Duration.ZERO);
+        assertEquals(1, queue.snapshot().get("inUse"));
+    }
+
+    @Test
+    void userOverTheirQueueShareIsRejectedAtOnce() throws Exception {
+        FairAdmissionQueue small = new FairAdmissionQueue("test", 1, 10, 1, 2);
+        UUID user = UUID.randomUUID();
+        small.acquire(user, Duration.ZERO);
+
+        Thread waiting = new Thread(() -> small.acquire(user, Duration.ofSeconds(5)));
+        waiting.start();
+        await(() -> (int) small.snapshot().get("queued") == 1);
+
+        AiOverloadedException e = assertThrows(AiOverloadedException.class,
+                () -> small.acquire(user, Duration.ofSeconds(5)));
+        assertTrue(e.getMessage().contains("queue full"));
+
+        small.release();
+        waiting.join(1000);
+    }
+
+    // starts a thread that waits for a permit, records its label once admitted,
+    // and returns after it is queued at position `queuedAfter`
+    private Thread waitFor(UUID user, String label, int queuedAfter) throws InterruptedException {
+        Thread t = new Thread(() -> {
+            queue.acquire(user, Duration.ofSeconds(5));
+            admittedOrder.add(label);
+        });
+        t.start();
+        await(() -> (int) queue.snapshot().get("queued") == queuedAfter);
+        return t;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long until = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > until) throw new AssertionError("timed out");
+            Thread.sleep(1);
+        }
+    }
+}
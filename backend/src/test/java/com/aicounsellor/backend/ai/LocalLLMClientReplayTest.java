@@ -0,0 +1,78 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalLLMClientReplayTest {
+
+    private static final String GEMINI_BODY =
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"{\\\"reply\\\":\\\"from gemini\\\",\\\"actions\\\":[]}\"}]}}]}";
+    private static final String OPENAI_BODY =
+            "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"{\\\"reply\\\":\\\"from groq\\\",\\\"actions\\\":[]}\"}}]}";
+
+    @TempDir
+    Path dir;
+
+    private final AiJsonParser parser = new AiJsonParser();
+
+    @Test
+    void recordedBodiesAreReplayedInTheirOwnFormat() throws Exception {
+        ResponseRecorder recorder = new ResponseRecorder(dir.toString());
+        recorder.record("gemini", "gemini", "sys", "hi", bytes(GEMINI_BODY));
+        recorder.record("groq", "openai", "sys", "hi", bytes(OPENAI_BODY));
+
+        LocalLLMClient local = client();
+        LocalLLMClient.Simulated gemini = local.simulate("sys", "hi", "gemini");
+        LocalLLMClient.Simulated openAi = local.simulate("sys", "hi", "openai");
+
+        assertArrayEquals(bytes(GEMINI_BODY), local.body(gemini, "gemini"));
+        assertArrayEquals(bytes(OPENAI_BODY), local.body(openAi, "openai"));
+        assertEquals("from groq", parser.parseText(openAi.text()).getReply());
+    }
+
+    @Test
+    void formatWithoutRecordingsFailsLoudly() throws Exception {
+        new ResponseRecorder(dir.toString()).record("gemini", "gemini", "sys", "hi", bytes(GEMINI_BODY));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> client().simulate("sys", "hi", "openai"));
+        assertTrue(e.getMessage().contains("no openai recordings"), e.getMessage());
+    }
+
+    @Test
+    void capturesNamedBeforeTheFormatAreKnownByProvider() throws Exception {
+        Files.write(dir.resolve("abc.groq.json"), bytes(OPENAI_BODY));
+        Files.write(dir.resolve("def.mystery.json"), bytes(GEMINI_BODY));
+
+        LocalLLMClient local = client();
+        assertArrayEquals(bytes(OPENAI_BODY), local.simulate("sys", "other prompt", "openai").replayed());
+        // the unlabeled capture is skipped, so gemini has nothing to replay
+        assertThrows(RuntimeException.class, () -> local.simulate("sys", "other prompt", "gemini"));
+    }
+
+    @Test
+    void withoutReplayDirTheAnswerIsGenerated() {
+        LocalLLMClient local = new LocalLLMClient(parser, "openai", 42, "fixed", 0, 0, 0, 0.5, 0, 0, 12, "");
+        LocalLLMClient.Simulated s = local.simulate("sys", "USER_MESSAGE:\nhello", "openai");
+
+        assertNull(s.replayed());
+        assertTrue(new String(local.body(s, "openai"), StandardCharsets.UTF_8).contains("chat.completion"));
+    }
+
+    private LocalLLMClient client() {
+        return new LocalLLMClient(parser, "gemini", 42, "fixed", 0, 0, 0, 0.5, 0, 0, 12, dir.toString());
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,151 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ProviderHealthTest {
+
+    private static final long OPEN_MS = 50;
+
+    @Test
+    void circuitOpensProbesAndCloses() throws Exception {
+        ProviderHealth h = health();
+        for (int i = 0; i < 3; i++) h.recordSuccess(100);
+        assertEquals(ProviderHealth.State.CLOSED, h.state());
+
+        // 3 of 5 failed: over the 0.5 threshold
+        h.recordFailure();
+        h.recordFailure();
+        assertEquals(ProviderHealth.State.CLOSED, h.state());
+        h.recordFailure();
+        assertEquals(ProviderHealth.State.OPEN, h.state());
+        assertFalse(h.allowRequest());
+
+        Thread.sleep(OPEN_MS + 10);
+        assertTrue(h.allowRequest());
+        assertEquals(ProviderHealth.State.HALF_OPEN, h.state());
+        // one probe at a time
+        assertFalse(h.allowRequest());
+
+        h.recordSuccess(80);
+        assertEquals(ProviderHealth.State.CLOSED, h.state());
+        assertTrue(h.allowRequest());
+    }
+
+    @Test
+    void failedProbeReopens() throws Exception {
+        ProviderHealth h = tripped();
+        Thread.sleep(OPEN_MS + 10);
+        assertTrue(h.allowRequest());
+
+        h.recordFailure();
+        assertEquals(ProviderHealth.State.OPEN, h.state());
+        assertFalse(h.allowRequest());
+    }
+
+    @Test
+    void peekingDoesNotTakeTheProbe() throws Exception {
+        ProviderHealth h = tripped();
+        assertFalse(h.mayAllow());
+        Thread.sleep(OPEN_MS + 10);
+
+        for (int i = 0; i < 3; i++) assertTrue(h.mayAllow());
+        assertTrue(h.allowRequest());
+        assertFalse(h.mayAllow());
+
+        // a cancelled probe hands the slot back
+        h.recordCancelled();
+        assertTrue(h.mayAllow());
+        assertTrue(h.allowRequest());
+    }
+
+    @Test
+    void ranksByStateThenLatencyStretchedByErrorRate() {
+        ProviderHealthRegistry registry = registry();
+        LLMClient fast = client("fast");
+        LLMClient slow = client("slow");
+        LLMClient flaky = client("flaky");
+        LLMClient fresh = client("fresh");
+
+        for (int i = 0; i < 4; i++) registry.recordSuccess(fast, 100);
+        for (int i = 0; i < 4; i++) registry.recordSuccess(slow, 400);
+        // 80ms when it works, but fails 2 of 5 calls: ~133ms expected
+        for (int i = 0; i < 3; i++) registry.recordSuccess(flaky, 80);
+        registry.recordFailure(flaky);
+        registry.recordFailure(flaky);
+
+        assertEquals(List.of(fresh, fast, flaky, slow), registry.rank(List.of(slow, flaky, fast, fresh)));
+
+        // an open circuit goes last whatever its latency
+        registry.recordFailure(fast);
+        registry.recordFailure(fast);
+        registry.recordFailure(fast);
+        registry.recordFailure(fast);
+        assertEquals(List.of(fresh, flaky, slow, fast), registry.rank(List.of(slow, flaky, fast, fresh)));
+    }
+
+    @Test
+    void ewmaWeighsRecentLatency() {
+        ProviderHealth h = health();
+        h.recordSuccess(100);
+        h.recordSuccess(200);
+        // 0.2 * 200 + 0.8 * 100
+        assertEquals(120.0, h.ewmaLatencyMs(), 1e-9);
+        h.recordFailure();
+        assertEquals(120.0, h.ewmaLatencyMs(), 1e-9);
+    }
+
+    private static ProviderHealth health() {
+        return new ProviderHealth("p", 10, 5, 0.5, OPEN_MS, 0.2);
+    }
+
+    private static ProviderHealth tripped() {
+        ProviderHealth h = health();
+        for (int i = 0; i < 5; i++) h.recordFailure();
+        assertEquals(ProviderHealth.State.OPEN, h.state());
+        return h;
+    }
+
+    private static ProviderHealthRegistry registry() {
+        ProviderHealthRegistry r = new ProviderHealthRegistry();
+        ReflectionTestUtils.setField(r, "windowSize", 10);
+        ReflectionTestUtils.setField(r, "minCalls", 5);
+        ReflectionTestUtils.setField(r, "errorRateThreshold", 0.5);
+        ReflectionTestUtils.setField(r, "openMillis", OPEN_MS);
+        ReflectionTestUtils.setField(r, "ewmaAlpha", 0.2);
+        return r;
+    }
+
+    private static LLMClient client(String name) {
+        return new LLMClient() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public String wireFormat() {
+                return "gemini";
+            }
+
+            @Override
+            public Mono<byte[]> generate(String systemPrompt, String userPrompt) {
+                return Mono.error(new UnsupportedOperationException());
+            }
+
+            @Override
+            public Flux<String> streamText(String systemPrompt, String userPrompt) {
+                return Flux.error(new UnsupportedOperationException());
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.aicounsellor.backend.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ReplyStreamExtractorTest {
+
+    private static final String OUTPUT = "```json\n{\"actions\": [{\"type\": \"note\", \"args\": {\"reply\": \"x\"}}],"
+            + " \"reply\" : \"Line \\\"one\\\"\\nsecond \\u00e9t\\u00e9 \\\\ done\", \"after\": \"ignored\"}\n```";
+
+    @Test
+    void everySplitPointYieldsTheSameReply() throws Exception {
+        String json = OUTPUT.substring(OUTPUT.indexOf('{'), OUTPUT.lastIndexOf('}') + 1);
+        String expected = new ObjectMapper().readTree(json).get("reply").asText();
+
+        for (int i = 0; i <= OUTPUT.length(); i++) {
+            for (int j = i; j <= OUTPUT.length(); j += 7) {
+                assertEquals(expected, feed(OUTPUT.substring(0, i), OUTPUT.substring(i, j), OUTPUT.substring(j)),
+                        "split at " + i + "," + j);
+            }
+        }
+    }
+
+    @Test
+    void oneCharacterAtATime() {
+        ReplyStreamExtractor x = new ReplyStreamExtractor();
+        StringBuilder out = new StringBuilder();
+        for (char c : "{\"reply\":\"a\\u0041\\tb\"}".toCharArray()) out.append(x.accept(String.valueOf(c)));
+
+        assertEquals("aA\tb", out.toString());
+    }
+
+    @Test
+    void nestedOrNonStringReplyIsNotStreamed() {
+        assertEquals("", feed("{\"meta\": {\"reply\": \"nested\"}, \"actions\": []}"));
+        assertEquals("", feed("{\"reply\": null, \"actions\": []}"));
+        assertEquals("", feed("{\"actions\": [\"reply\", \"x\"]}"));
+    }
+
+    private static String feed(String... chunks) {
+        ReplyStreamExtractor x = new ReplyStreamExtractor();
+        StringBuilder out = new StringBuilder();
+        for (String c : List.of(chunks)) out.append(x.accept(c));
+        return out.toString();
+    }
+}
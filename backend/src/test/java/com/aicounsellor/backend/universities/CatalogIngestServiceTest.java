@@ -0,0 +1,156 @@
+package com.aicounsellor.backend.universities;
+
+import static com.aicounsellor.backend.universities.CatalogIngestService.COST;
+import static com.aicounsellor.backend.universities.CatalogIngestService.COUNTRY;
+import static com.aicounsellor.backend.universities.CatalogIngestService.DIFFICULTY;
+import static com.aicounsellor.backend.universities.CatalogIngestService.ID;
+import static com.aicounsellor.backend.universities.CatalogIngestService.MIN_GPA;
+import static com.aicounsellor.backend.universities.CatalogIngestService.NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class CatalogIngestServiceTest {
+
+    @Test
+    void csvQuotedCellsKeepCommasQuotesAndNewlines() throws Exception {
+        String csv = "\uFEFFName,Country,Yearly Cost USD,Difficulty,Unused\r\n"
+                + "\"Kelmarton, Institute of \"\"Tech\"\"\",UK,\"$12,500\",hard,x\r\n"
+                + "\r\n"
+                + "\"Two\nLines University\",us,9000,medium\n";
+
+        List<String[]> rows = read(csv, "csv");
+
+        assertEquals(2, rows.size());
+        assertEquals("Kelmarton, Institute of \"Tech\"", rows.get(0)[NAME]);
+        assertEquals("$12,500", rows.get(0)[COST]);
+        assertEquals("Two\nLines University", rows.get(1)[NAME]);
+        assertNull(rows.get(1)[MIN_GPA]);
+    }
+
+    @Test
+    void csvRowsReportTheLineTheyStartOn() throws Exception {
+        CatalogIngestService.RowSource src = CatalogIngestService.rowSource(stream(
+                "name,country\n\"a\nb\",UK\nc,UK\n"), "csv");
+        String[] row = new String[8];
+
+        src.next(row);
+        assertEquals(2, src.line());
+        src.next(row);
+        assertEquals(4, src.line());
+    }
+
+    @Test
+    void ndjsonTakesScalarsAndSkipsNestedValues() throws Exception {
+        String ndjson = """
+                {"university": "Tokyo Tech", "country_code": "JP", "cost": 8000, "meta": {"name": "ignored"}, "gpa": null}
+                {"name": "ETH", "country": "CHE", "tuition_usd": "1500.4", "tags": ["a", "b"], "difficulty": "High"}
+                """;
+
+        List<String[]> rows = read(ndjson, "ndjson");
+
+        assertEquals(2, rows.size());
+        assertEquals("Tokyo Tech", rows.get(0)[NAME]);
+        assertEquals("8000", rows.get(0)[COST]);
+        assertNull(rows.get(0)[MIN_GPA]);
+        assertEquals("ETH", rows.get(1)[NAME]);
+        assertEquals("CHE", rows.get(1)[COUNTRY]);
+    }
+
+    @Test
+    void normalizeCanonicalizesCountriesCostsAndDifficulty() {
+        String[] row = row("  Technical   University of Munich ", "DEU", "$40,000.6", "Hard");
+        assertNull(CatalogIngestService.normalize(row));
+        assertEquals("Technical University of Munich", row[NAME]);
+        assertEquals("Germany", row[COUNTRY]);
+        assertEquals("40001", row[COST]);
+        assertEquals("high", row[DIFFICULTY]);
+
+        for (String us : List.of("us", "USA", "United States", "united states of america")) {
+            String[] r = row("Stanford", us, "60000", "high");
+            assertNull(CatalogIngestService.normalize(r));
+            assertEquals("USA", r[COUNTRY]);
+        }
+        String[] uk = row("Oxford", "England", "50000", "high");
+        CatalogIngestService.normalize(uk);
+        assertEquals("UK", uk[COUNTRY]);
+    }
+
+    @Test
+    void normalizeRejectsBadRowsAndDerivesStableIds() {
+        assertEquals("unknown country 'Atlantis'", CatalogIngestService.normalize(row("X", "Atlantis", "1", "low")));
+        assertEquals("yearly_cost_usd not a number: cheap", CatalogIngestService.normalize(row("X", "UK", "cheap", "low")));
+        assertEquals("difficulty must be low, medium or high: extreme",
+                CatalogIngestService.normalize(row("X", "UK", "1", "extreme")));
+
+        String[] a = row("Oxford", "UK", "1", "low");
+        String[] b = row("oxford", "gb", "2", "high");
+        CatalogIngestService.normalize(a);
+        CatalogIngestService.normalize(b);
+        assertEquals(a[ID], b[ID]);
+    }
+
+    @Test
+    void stagedCopyRowsQuoteTextAndSkipInvalidRows() throws Exception {
+        CatalogIngestService service = new CatalogIngestService(null, null);
+        CatalogIngestService.Report report = new CatalogIngestService.Report();
+        StringWriter out = new StringWriter();
+
+        service.stage(CatalogIngestService.rowSource(stream(
+                "name,country,cost,difficulty\n\"Say \"\"Hi\"\" U\",UK,10,low\nBad,Nowhere,10,low\n"), "csv"), out, report);
+
+        assertEquals(2, report.read);
+        assertEquals(1, report.staged);
+        assertEquals(List.of("line 3: unknown country 'Nowhere'"), report.errors);
+        String[] cols = out.toString().split(",");
+        assertEquals("\"Say \"\"Hi\"\" U\"", cols[2]);
+        assertEquals("\"UK\"", cols[3]);
+        // no id in the file: the merge may swap in the id of an existing row
+        assertEquals("true\n", cols[cols.length - 1]);
+    }
+
+    @Test
+    void rowsWithAnIdAreNotMatchedByName() throws Exception {
+        CatalogIngestService service = new CatalogIngestService(null, null);
+        StringWriter out = new StringWriter();
+        UUID id = UUID.randomUUID();
+
+        service.stage(CatalogIngestService.rowSource(stream(
+                "id,name,country,cost,difficulty\n" + id + ",Oxford,UK,10,low\n"), "csv"), out,
+                new CatalogIngestService.Report());
+
+        assertTrue(out.toString().startsWith("2," + id + ","));
+        assertTrue(out.toString().endsWith(",false\n"));
+    }
+
+    private static List<String[]> read(String text, String format) throws Exception {
+        CatalogIngestService.RowSource src = CatalogIngestService.rowSource(stream(text), format);
+        List<String[]> rows = new ArrayList<>();
+        String[] row = new String[8];
+        while (src.next(row)) rows.add(Arrays.copyOf(row, row.length));
+        return rows;
+    }
+
+    private static String[] row(String name, String country, String cost, String difficulty) {
+        String[] row = new String[8];
+        row[NAME] = name;
+        row[COUNTRY] = country;
+        row[COST] = cost;
+        row[DIFFICULTY] = difficulty;
+        return row;
+    }
+
+    private static ByteArrayInputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
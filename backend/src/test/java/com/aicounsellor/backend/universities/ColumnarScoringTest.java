@@ -0,0 +1,127 @@
+package com.aicounsellor.backend.universities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Differential test: the columnar full recompute, sequential or split over
+ * the scoring pool, must produce exactly what the per-entry scorer produces
+ * for the same filtered candidates.
+ */
+class ColumnarScoringTest {
+
+    private static final String[] COUNTRIES = {"USA", "UK", "Canada", "Germany", "Australia"};
+    private static final String[] DIFFICULTIES = {"high", "High", "medium", "MEDIUM", "low", "easy", null};
+    private static final String[] READINESS = {null, "not started", "pending", "done", "booked"};
+
+    @Test
+    void columnarMatchesPerEntryScoring() {
+        Random rnd = new Random(7);
+        UniversityCatalog.Snapshot snapshot = UniversityCatalog.Snapshot.of(catalog(rnd, 3000), 1);
+
+        for (int maxItems : new int[]{5, 100, 10_000}) {
+            UniversityService service = service(maxItems);
+            for (int run = 0; run < 200; run++) {
+                Recommendations.Inputs in = inputs(rnd);
+
+                Recommendations columnar = service.score(null, in, snapshot);
+                Recommendations reference = service.scoreCandidates(null, in, snapshot.fingerprint(), candidates(snapshot, in));
+
+                assertEquals(reference.total(), columnar.total(), "total for " + in);
+                assertEquals(reference.items(), columnar.items(), "items for " + in + ", maxItems " + maxItems);
+            }
+        }
+    }
+
+    @Test
+    void parallelScanMatchesPerEntryScoring() {
+        Random rnd = new Random(11);
+        // big enough that the scan is split into several chunks and merged
+        UniversityCatalog.Snapshot snapshot = UniversityCatalog.Snapshot.of(catalog(rnd, 40_000), 1);
+
+        for (int maxItems : new int[]{5, 1000, 50_000}) {
+            UniversityService service = service(maxItems);
+            ReflectionTestUtils.setField(service, "parallelThreshold", 0);
+            for (int run = 0; run < 30; run++) {
+                Recommendations.Inputs in = inputs(rnd);
+
+                Recommendations parallel = service.score(null, in, snapshot);
+                Recommendations reference = service.scoreCandidates(null, in, snapshot.fingerprint(), candidates(snapshot, in));
+
+                assertEquals(reference.total(), parallel.total(), "total for " + in);
+                assertEquals(reference.items(), parallel.items(), "items for " + in + ", maxItems " + maxItems);
+            }
+            service.shutdown();
+        }
+    }
+
+    // the plain filter the columnar scan replaces: budget band, then the countries in the order given
+    private static List<CatalogEntry> candidates(UniversityCatalog.Snapshot snapshot, Recommendations.Inputs in) {
+        Integer maxCost = in.budget() != null ? in.budget() + 15000 : null;
+        List<CatalogEntry> affordable = snapshot.all().stream()
+                .filter(e -> maxCost == null || e.yearlyCostUsd() <= maxCost)
+                .toList();
+        if (in.countries().isEmpty()) return affordable;
+
+        List<CatalogEntry> out = new ArrayList<>();
+        for (String country : in.countries()) {
+            for (CatalogEntry e : affordable) {
+                if (country.equals(e.country())) out.add(e);
+            }
+        }
+        return out;
+    }
+
+    private static UniversityService service(int maxItems) {
+        UniversityRepository repo = (UniversityRepository) Proxy.newProxyInstance(
+                UniversityRepository.class.getClassLoader(), new Class<?>[]{UniversityRepository.class},
+                (proxy, method, args) -> { throw new UnsupportedOperationException(method.getName()); });
+        UniversityService service = new UniversityService(repo, null, null, null, null, null, null, event -> {});
+        ReflectionTestUtils.setField(service, "maxItems", maxItems);
+        return service;
+    }
+
+    private static List<University> catalog(Random rnd, int n) {
+        List<University> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            University u = new University();
+            u.setId(new UUID(rnd.nextLong(), rnd.nextLong()));
+            // few distinct names so the name/id tie-break matters; some missing
+            u.setName(rnd.nextInt(20) == 0 ? null : "University " + rnd.nextInt(n / 4));
+            u.setCountry(COUNTRIES[rnd.nextInt(COUNTRIES.length)]);
+            u.setYearlyCostUsd(5_000 + rnd.nextInt(70_000));
+            u.setMinGpa(rnd.nextInt(4) == 0 ? null : 2.0 + rnd.nextInt(21) / 10.0);
+            u.setDifficulty(DIFFICULTIES[rnd.nextInt(DIFFICULTIES.length)]);
+            out.add(u);
+        }
+        return out;
+    }
+
+    private static Recommendations.Inputs inputs(Random rnd) {
+        List<String> countries = new ArrayList<>();
+        for (String c : COUNTRIES) {
+            if (rnd.nextInt(3) == 0) countries.add(c);
+        }
+        countries.add(rnd.nextInt(10) == 0 ? "Atlantis" : COUNTRIES[0]);
+        if (rnd.nextInt(4) == 0) countries.clear();
+
+        Integer budget = rnd.nextInt(5) == 0 ? null : rnd.nextInt(60_000);
+        double gpa = rnd.nextInt(10) == 0 ? 0.0 : 2.0 + rnd.nextInt(21) / 10.0;
+
+        int notReady = 0;
+        for (int i = 0; i < 3; i++) {
+            String status = READINESS[rnd.nextInt(READINESS.length)];
+            if (status == null || status.contains("not") || status.contains("pending")) notReady++;
+        }
+        return new Recommendations.Inputs(true, List.copyOf(new LinkedHashSet<>(countries)), budget, gpa, notReady);
+    }
+}
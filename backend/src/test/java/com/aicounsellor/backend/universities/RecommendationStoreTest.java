@@ -0,0 +1,33 @@
+package com.aicounsellor.backend.universities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.aicounsellor.backend.universities.dto.UniversityDiscoverResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class RecommendationStoreTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final RecommendationStore store = new RecommendationStore(null, mapper);
+
+    @Test
+    void headParsesOnlyTheFirstItems() throws Exception {
+        List<UniversityDiscoverResponse> all = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            all.add(new UniversityDiscoverResponse(UUID.randomUUID(), "Uni " + i, "USA", 1000 * i, "medium",
+                    "TARGET", "MEDIUM", "MEDIUM", "fits"));
+        }
+        String json = mapper.writeValueAsString(all);
+
+        assertEquals(all.subList(0, 25), store.items(json, 25));
+        assertEquals(all, store.items(json, 100));
+        assertEquals(all, store.items(json, Integer.MAX_VALUE));
+        assertEquals(List.of(), store.items("[]", 25));
+    }
+}
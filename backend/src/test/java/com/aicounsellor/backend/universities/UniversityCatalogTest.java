@@ -0,0 +1,174 @@
+package com.aicounsellor.backend.universities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class UniversityCatalogTest {
+
+    private volatile List<CatalogEntry> rows = List.of(
+            entry("Alpha University", 30000),
+            entry("Beta Institute", 12000),
+            entry("Gamma College", 45000));
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile boolean databaseDown = false;
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    private final UniversityCatalog catalog = new UniversityCatalog(repository(), events::add);
+
+    @Test
+    void reloadWithTheSameContentPublishesNothing() {
+        UniversityCatalog.Snapshot first = catalog.refresh();
+        UniversityCatalog.Snapshot second = catalog.refresh();
+
+        assertEquals(first.version() + 1, second.version());
+        assertEquals(first.fingerprint(), second.fingerprint());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void changedContentPublishesTheNewFingerprint() {
+        UniversityCatalog.Snapshot before = catalog.refresh();
+        CatalogEntry beta = rows.get(1);
+        rows = List.of(rows.get(0), withCost(beta, 13000), rows.get(2));
+
+        UniversityCatalog.Snapshot after = catalog.refresh();
+
+        assertNotEquals(before.fingerprint(), after.fingerprint());
+        assertEquals(List.of(new CatalogReloadedEvent(after.version(), after.fingerprint())), events);
+        assertEquals(13000, after.byId(beta.id()).yearlyCostUsd());
+    }
+
+    @Test
+    void fingerprintIgnoresRowOrderAndEntriesAreSortedByCost() {
+        List<CatalogEntry> reversed = new ArrayList<>(rows);
+        Collections.reverse(reversed);
+
+        UniversityCatalog.Snapshot a = UniversityCatalog.Snapshot.ofEntries(rows, 1);
+        UniversityCatalog.Snapshot b = UniversityCatalog.Snapshot.ofEntries(reversed, 7);
+
+        assertEquals(a.fingerprint(), b.fingerprint());
+        assertEquals(List.of(12000, 30000, 45000), b.all().stream().map(CatalogEntry::yearlyCostUsd).toList());
+    }
+
+    @Test
+    void heldSnapshotIsNotChangedByARefresh() {
+        UniversityCatalog.Snapshot held = catalog.snapshot();
+        rows = List.of(entry("Delta University", 20000));
+        catalog.refresh();
+
+        assertEquals(3, held.size());
+        assertEquals(1, catalog.snapshot().size());
+        assertTrue(held.all().stream().noneMatch(e -> e.name().startsWith("Delta")));
+    }
+
+    @Test
+    void readersSeeOneWholeCatalogNeverAMix() throws Exception {
+        List<CatalogEntry> odd = generation("odd", 200);
+        List<CatalogEntry> even = generation("even", 200);
+        rows = odd;
+        catalog.refresh();
+
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                readers.add(pool.submit(() -> {
+                    int reads = 0;
+                    while (!stop.get()) {
+                        UniversityCatalog.Snapshot s = catalog.snapshot();
+                        Set<String> generations = s.all().stream()
+                                .map(e -> e.name().substring(0, e.name().indexOf(' ')))
+                                .collect(Collectors.toSet());
+                        if (generations.size() != 1 || s.size() != 200) {
+                            throw new AssertionError("mixed snapshot: " + generations);
+                        }
+                        reads++;
+                    }
+                    return reads;
+                }));
+            }
+
+            for (int i = 0; i < 200; i++) {
+                rows = i % 2 == 0 ? even : odd;
+                catalog.refresh();
+            }
+            stop.set(true);
+            for (Future<Integer> reader : readers) assertTrue(reader.get(5, TimeUnit.SECONDS) > 0);
+        } finally {
+            pool.shutdownNow();
+        }
+        // every swap changed the content
+        assertEquals(200, events.size());
+    }
+
+    @Test
+    void failedRefreshKeepsServingThePreviousSnapshot() {
+        UniversityCatalog.Snapshot loaded = catalog.refresh();
+        databaseDown = true;
+
+        ReflectionTestUtils.invokeMethod(catalog, "refreshQuietly");
+
+        assertSame(loaded, catalog.snapshot());
+    }
+
+    @Test
+    void concurrentFirstReadsLoadOnce() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<UniversityCatalog.Snapshot>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) reads.add(pool.submit(catalog::snapshot));
+            UniversityCatalog.Snapshot first = reads.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<UniversityCatalog.Snapshot> r : reads) assertSame(first, r.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    private UniversityRepository repository() {
+        return (UniversityRepository) Proxy.newProxyInstance(
+                UniversityRepository.class.getClassLoader(), new Class<?>[]{UniversityRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findCatalogEntries")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    if (databaseDown) throw new IllegalStateException("connection refused");
+                    loads.incrementAndGet();
+                    return rows;
+                });
+    }
+
+    private static List<CatalogEntry> generation(String tag, int n) {
+        List<CatalogEntry> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(entry(tag + " University " + i, 10000 + i));
+        return out;
+    }
+
+    private static CatalogEntry entry(String name, int cost) {
+        return new CatalogEntry(UUID.randomUUID(), name, "USA", "MS", "CS", cost, 3.0, "medium");
+    }
+
+    private static CatalogEntry withCost(CatalogEntry e, int cost) {
+        return new CatalogEntry(e.id(), e.name(), e.country(), e.degree(), e.field(), cost, e.minGpa(), e.difficulty());
+    }
+}
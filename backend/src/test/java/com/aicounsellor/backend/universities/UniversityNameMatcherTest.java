@@ -0,0 +1,71 @@
+package com.aicounsellor.backend.universities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class UniversityNameMatcherTest {
+
+    private final UniversityNameMatcher matcher = matcher(
+            "University of California",
+            "University of California Berkeley",
+            "Massachusetts Institute of Technology (MIT)",
+            "The University of Tokyo",
+            "Sorbonne University (Paris Campus)",
+            "Kings College");
+
+    @Test
+    void longestOverlappingNameWins() {
+        assertEquals(List.of("University of California Berkeley"),
+                names("Apply to the University of California, Berkeley this year."));
+        assertEquals(List.of("University of California"),
+                names("The University of California system is large."));
+    }
+
+    @Test
+    void matchesWholeWordsOnly() {
+        assertEquals(List.of(), names("Kings Collegestown is not a university."));
+        assertEquals(List.of(), names("Ask about the SMITH scholarship."));
+        assertEquals(List.of("Kings College"), names("Look at kings-college first."));
+    }
+
+    @Test
+    void aliasesReportTheCatalogNameInOrderOfFirstAppearance() {
+        assertEquals(List.of("Massachusetts Institute of Technology (MIT)", "The University of Tokyo"),
+                names("MIT and the University of Tokyo both fit; MIT has the better aid."));
+    }
+
+    @Test
+    void onlyAcronymParenthesesBecomeAliases() {
+        assertEquals(List.of("Massachusetts Institute of Technology (MIT)", "MIT", "Massachusetts Institute of Technology"),
+                UniversityNameMatcher.aliases("Massachusetts Institute of Technology (MIT)"));
+        assertEquals(List.of("Sorbonne University (Paris Campus)", "Sorbonne University"),
+                UniversityNameMatcher.aliases("Sorbonne University (Paris Campus)"));
+
+        assertTrue(UniversityNameMatcher.isAcronym("UCLA"));
+        assertFalse(UniversityNameMatcher.isAcronym("Paris"));
+        assertFalse(UniversityNameMatcher.isAcronym("Main Campus"));
+        assertFalse(UniversityNameMatcher.isAcronym("ABCDEFGHIJ"));
+        assertEquals(List.of(), names("Paris campus housing is expensive."));
+    }
+
+    private List<String> names(String text) {
+        return matcher.find(text).stream().map(UniversityNameMatcher.Mention::name).toList();
+    }
+
+    private static UniversityNameMatcher matcher(String... names) {
+        List<CatalogEntry> rows = new ArrayList<>();
+        for (String name : names) {
+            rows.add(new CatalogEntry(UUID.randomUUID(), name, "USA", "MS", "CS", 40000, 3.0, "medium"));
+        }
+        UniversityNameMatcher matcher = new UniversityNameMatcher(null);
+        matcher.rebuild(UniversityCatalog.Snapshot.ofEntries(rows, 1));
+        return matcher;
+    }
+}
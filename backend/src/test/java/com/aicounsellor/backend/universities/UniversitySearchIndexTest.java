@@ -0,0 +1,93 @@
+package com.aicounsellor.backend.universities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class UniversitySearchIndexTest {
+
+    private final List<CatalogEntry> rows = new ArrayList<>(List.of(
+            entry("Stanford University", "USA"),
+            entry("Stanford Graduate School of Business", "USA"),
+            entry("University of Toronto", "Canada"),
+            entry("University of Tokyo", "Japan"),
+            entry("Kelmarton Institute of Technology", "UK"),
+            entry("Kelmarton Institute of Technology", "Canada"),
+            entry("Technical University of Munich", "Germany")));
+
+    {
+        // enough "University of ..." names for those words to be common, as in a real catalog
+        String[] syllables = {"bar", "vel", "dor", "mi", "qua", "zen", "lo", "fi"};
+        for (int i = 0; i < 64; i++) {
+            rows.add(entry("University of " + syllables[i % 8] + syllables[i / 8] + "ville", "USA"));
+        }
+    }
+
+    private final UniversityCatalog catalog = catalog(rows);
+    private final UniversitySearchIndex index = new UniversitySearchIndex(catalog);
+
+    @Test
+    void exactNameFirstAndShorterNameWinsTies() {
+        List<String> names = names("stanford", List.of(), 5);
+
+        assertEquals(List.of("Stanford University", "Stanford Graduate School of Business"), names);
+        assertEquals(1.0, index.search("University of Toronto", List.of(), 1).get(0).similarity(), 1e-9);
+    }
+
+    @Test
+    void typoAndUnfinishedLastWordStillMatch() {
+        assertEquals("University of Toronto", names("Univeristy of Tornto", List.of(), 1).get(0));
+        assertEquals("Kelmarton Institute of Technology", names("kelmart", List.of(), 1).get(0));
+    }
+
+    @Test
+    void rareWordsDecideTheMatchNotCommonOnes() {
+        // "University of" alone is not enough to pull in Tokyo for a Toronto query
+        assertEquals(List.of("University of Toronto"), names("University of Toronto", List.of(), 10));
+    }
+
+    @Test
+    void preferredCountryBreaksTies() {
+        List<UniversitySearchIndex.Hit> hits = index.search("Kelmarton Institute", List.of("Canada"), 2);
+
+        assertEquals("Canada", hits.get(0).entry().country());
+        assertEquals("UK", hits.get(1).entry().country());
+    }
+
+    @Test
+    void followsCatalogChanges() {
+        assertEquals("Technical University of Munich", names("munich", List.of(), 1).get(0));
+
+        CatalogEntry munich = rows.remove(6);
+        rows.add(new CatalogEntry(munich.id(), "TU Muenchen", munich.country(), munich.degree(), munich.field(),
+                munich.yearlyCostUsd(), munich.minGpa(), munich.difficulty()));
+        catalog.refresh();
+
+        assertTrue(names("munich", List.of(), 5).isEmpty());
+        assertEquals("TU Muenchen", names("muenchen", List.of(), 1).get(0));
+    }
+
+    private List<String> names(String query, List<String> preferred, int limit) {
+        return index.search(query, preferred, limit).stream().map(h -> h.entry().name()).toList();
+    }
+
+    private static CatalogEntry entry(String name, String country) {
+        return new CatalogEntry(UUID.randomUUID(), name, country, "MS", "CS", 30000, 3.0, "medium");
+    }
+
+    private static UniversityCatalog catalog(List<CatalogEntry> rows) {
+        UniversityRepository repo = (UniversityRepository) Proxy.newProxyInstance(
+                UniversityRepository.class.getClassLoader(), new Class<?>[]{UniversityRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findCatalogEntries")) return List.copyOf(rows);
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new UniversityCatalog(repo, event -> {});
+    }
+}
@@ -74,10 +74,15 @@ async function loadHistory() {
   const token = getToken();
   if (!token) return;
 
-  const history = await apiFetch<any[]>("/ai/history", {}, token);
+  // latest page, newest first
+  const history = await apiFetch<{ items: any[]; nextCursor: string | null }>(
+    "/ai/history?limit=50",
+    {},
+    token
+  );
 
   setMessages(
-    history.map((m) => ({
+    [...history.items].reverse().map((m) => ({
       role: m.role,
       content: m.content,
     }))